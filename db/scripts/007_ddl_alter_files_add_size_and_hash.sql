@@ -0,0 +1,2 @@
+ALTER TABLE files ADD COLUMN size bigint;
+ALTER TABLE files ADD COLUMN hash varchar;
\ No newline at end of file
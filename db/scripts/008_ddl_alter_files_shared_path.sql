@@ -0,0 +1,7 @@
+ALTER TABLE files ADD COLUMN location varchar;
+UPDATE files SET location = path;
+ALTER TABLE files DROP COLUMN path;
+ALTER TABLE files RENAME COLUMN location TO path;
+ALTER TABLE files ALTER COLUMN path SET NOT NULL;
+CREATE INDEX files_path_idx ON files(path);
+CREATE INDEX files_hash_idx ON files(hash);
\ No newline at end of file
@@ -0,0 +1,2 @@
+CREATE INDEX vacancies_creation_date_id_idx ON vacancies(creation_date, id);
+CREATE INDEX candidates_creation_date_id_idx ON candidates(creation_date, id);
\ No newline at end of file
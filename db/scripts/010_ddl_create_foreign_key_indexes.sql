@@ -0,0 +1,4 @@
+CREATE INDEX vacancies_city_id_idx ON vacancies(city_id);
+CREATE INDEX vacancies_file_id_idx ON vacancies(file_id);
+CREATE INDEX candidates_city_id_idx ON candidates(city_id);
+CREATE INDEX candidates_file_id_idx ON candidates(file_id);
\ No newline at end of file
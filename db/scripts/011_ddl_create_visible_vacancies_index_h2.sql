@@ -0,0 +1 @@
+CREATE INDEX vacancies_visible_creation_date_id_idx ON vacancies(visible, creation_date DESC, id DESC);
\ No newline at end of file
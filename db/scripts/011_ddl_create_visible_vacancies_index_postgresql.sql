@@ -0,0 +1 @@
+CREATE INDEX vacancies_visible_creation_date_id_idx ON vacancies(creation_date, id) WHERE visible;
\ No newline at end of file
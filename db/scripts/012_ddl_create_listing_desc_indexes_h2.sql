@@ -0,0 +1,2 @@
+CREATE INDEX vacancies_creation_date_id_desc_idx ON vacancies(creation_date DESC, id DESC);
+CREATE INDEX candidates_creation_date_id_desc_idx ON candidates(creation_date DESC, id DESC);
\ No newline at end of file
@@ -0,0 +1,8 @@
+ALTER TABLE vacancies ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', title), 'A') || setweight(to_tsvector('russian', description), 'B')
+) STORED;
+CREATE INDEX vacancies_search_vector_idx ON vacancies USING GIN (search_vector);
+ALTER TABLE candidates ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', name), 'A') || setweight(to_tsvector('russian', description), 'B')
+) STORED;
+CREATE INDEX candidates_search_vector_idx ON candidates USING GIN (search_vector);
\ No newline at end of file
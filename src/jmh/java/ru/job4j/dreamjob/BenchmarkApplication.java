@@ -0,0 +1,89 @@
+package ru.job4j.dreamjob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Поднимает приложение целиком на тестовой БД H2 из connection.properties, со своим каталогом
+ * файлов и без фоновых задач, которые мешали бы замерам. Сервер слушает случайный порт.
+ * Свойства передаются аргументами командной строки, чтобы перекрыть application.properties.
+ */
+public final class BenchmarkApplication {
+
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    private static final String H2_FILE_SUFFIX = ".mv.db";
+
+    /**
+     * Devtools читает этот флаг до разбора аргументов, поэтому он задаётся системным свойством.
+     * Иначе при запуске из main devtools перезапустил бы main класса-загрузчика с аргументами Spring.
+     */
+    private static final String DEVTOOLS_RESTART = "spring.devtools.restart.enabled";
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Path fileDirectory) {
+        return start(fileDirectory, Map.of());
+    }
+
+    /**
+     * @param overrides свойства, которые заменяют значения по умолчанию, например file.cache.max-size
+     */
+    public static ConfigurableApplicationContext start(Path fileDirectory, Map<String, Object> overrides) {
+        Properties connection = loadConnectionProperties();
+        Map<String, Object> properties = new HashMap<>();
+        connection.stringPropertyNames().forEach(name -> properties.put(name, connection.getProperty(name)));
+        properties.put("datasource.replica.enabled", "false");
+        properties.put("repository.cache.invalidation", "local");
+        properties.put("file.directory", fileDirectory.toString());
+        properties.put("file.gc.enabled", "false");
+        properties.put("file.storage.migrate-to-sharded", "false");
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.putAll(overrides);
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        System.setProperty(DEVTOOLS_RESTART, "false");
+        return new SpringApplicationBuilder(Main.class).run(args);
+    }
+
+    /**
+     * Копирует тестовую БД H2, на которую Liquibase уже накатил схему, в directory, чтобы долгий
+     * прогон не оставлял данных в общей тестовой базе.
+     *
+     * @return адрес копии для свойства datasource.url
+     */
+    public static String copyDatabase(Path directory) {
+        String url = loadConnectionProperties().getProperty("datasource.url");
+        int optionsStart = url.indexOf(';');
+        String database = url.substring(H2_PREFIX.length(), optionsStart);
+        Path copy = directory.resolve("dreamjob");
+        try {
+            Files.copy(Path.of(database + H2_FILE_SUFFIX), Path.of(copy + H2_FILE_SUFFIX));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return H2_PREFIX + copy.toAbsolutePath() + url.substring(optionsStart);
+    }
+
+    private static Properties loadConnectionProperties() {
+        Properties connection = new Properties();
+        try (InputStream inputStream = BenchmarkApplication.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            connection.load(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return connection;
+    }
+
+}
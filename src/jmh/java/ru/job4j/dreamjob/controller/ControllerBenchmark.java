@@ -0,0 +1,162 @@
+package ru.job4j.dreamjob.controller;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.CharacterEncodingFilter;
+import ru.job4j.dreamjob.BenchmarkApplication;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.filter.AuthorizationFilter;
+import ru.job4j.dreamjob.filter.SessionFilter;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+import ru.job4j.dreamjob.service.FileService;
+import ru.job4j.dreamjob.service.UserService;
+
+/**
+ * Запросы к контроллерам через MockMvc поверх полностью поднятого приложения: фильтры, сервисы,
+ * кэши, тестовая БД H2 и шаблоны Thymeleaf. Данные для замера добавляются в setup и удаляются
+ * в конце. Запуск:
+ * mvn -Pbenchmark test-compile exec:exec@benchmarks -Dbenchmark.includes=ControllerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private static final String PASSWORD = "password";
+
+    @Param({"200"})
+    private int vacancies;
+
+    private Path directory;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private MockHttpSession session;
+
+    private User user;
+
+    private File image;
+
+    private int[] vacancyIds;
+
+    @Setup
+    public void startApplication() throws IOException {
+        directory = Files.createTempDirectory("dreamjob-benchmark");
+        context = BenchmarkApplication.start(directory);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean(CharacterEncodingFilter.class),
+                        context.getBean(AuthorizationFilter.class), context.getBean(SessionFilter.class))
+                .build();
+        image = context.getBean(FileService.class).save(new FileDto("logo.png", createImage()));
+        VacancyRepository vacancyRepository = context.getBean(VacancyRepository.class);
+        vacancyIds = new int[vacancies];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < vacancies; i++) {
+            vacancyIds[i] = vacancyRepository.save(new Vacancy(0, "Java developer " + i,
+                    "Spring Boot, sql2o, PostgreSQL", now.minusMinutes(i), true, 1, image.getId())).getId();
+        }
+        user = new User(0, "benchmark-" + System.nanoTime() + "@dreamjob.local", "Benchmark", PASSWORD);
+        context.getBean(UserService.class).save(user);
+        session = new MockHttpSession();
+        session.setAttribute("user", user);
+    }
+
+    private static byte[] createImage() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+
+    @TearDown
+    public void stopApplication() throws IOException {
+        VacancyRepository vacancyRepository = context.getBean(VacancyRepository.class);
+        for (int id : vacancyIds) {
+            vacancyRepository.deleteById(id);
+        }
+        context.getBean(FileService.class).deleteById(image.getId());
+        context.getBean(UserService.class).deleteByEmailAndPassword(user.getEmail(), PASSWORD);
+        context.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public MvcResult vacancyList() throws Exception {
+        return mockMvc.perform(get("/vacancies").session(session))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult vacancyDetail() throws Exception {
+        int id = vacancyIds[ThreadLocalRandom.current().nextInt(vacancyIds.length)];
+        return mockMvc.perform(get("/vacancies/{id}", id).session(session))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult vacancySearch() throws Exception {
+        return mockMvc.perform(get("/vacancies/search").param("query", "developer").session(session))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult image() throws Exception {
+        return mockMvc.perform(get("/files/{id}", image.getId()).session(session))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult login() throws Exception {
+        return mockMvc.perform(post("/users/login")
+                        .param("email", user.getEmail())
+                        .param("password", PASSWORD))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+    }
+
+}
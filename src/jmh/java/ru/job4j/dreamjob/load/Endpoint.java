@@ -0,0 +1,45 @@
+package ru.job4j.dreamjob.load;
+
+import java.util.Arrays;
+
+/**
+ * Запросы, из которых складывается нагрузка. Ключ - имя в описании сценария, ожидаемый статус
+ * отличает успешный ответ от ошибки: после входа и создания вакансии приложение отвечает
+ * перенаправлением.
+ */
+public enum Endpoint {
+
+    LOGIN("login", 302),
+    VACANCY_LIST("vacancy-list", 200),
+    VACANCY_DETAIL("vacancy-detail", 200),
+    CANDIDATE_LIST("candidate-list", 200),
+    CANDIDATE_DETAIL("candidate-detail", 200),
+    IMAGE("image", 200),
+    THUMBNAIL("thumbnail", 200),
+    VACANCY_CREATE("vacancy-create", 302);
+
+    private final String key;
+
+    private final int expectedStatus;
+
+    Endpoint(String key, int expectedStatus) {
+        this.key = key;
+        this.expectedStatus = expectedStatus;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    public static Endpoint of(String key) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестный запрос в сценарии: " + key));
+    }
+
+}
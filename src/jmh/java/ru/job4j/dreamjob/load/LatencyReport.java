@@ -0,0 +1,132 @@
+package ru.job4j.dreamjob.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.jcip.annotations.ThreadSafe;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Время ответа по каждому запросу в HdrHistogram с точностью до трёх значащих цифр, в микросекундах.
+ * В гистограмму попадают только успешные ответы, ошибки считаются отдельно.
+ */
+@ThreadSafe
+public class LatencyReport {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999"};
+
+    private static final DateTimeFormatter FILE_NAME_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    public LatencyReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(SIGNIFICANT_DIGITS));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public void record(Endpoint endpoint, long nanos, boolean success) {
+        if (success) {
+            recorders.get(endpoint).recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+        } else {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    /**
+     * Забывает всё записанное, например запросы разогрева.
+     */
+    public void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Снимает накопленное с начала замера и сбрасывает счётчики.
+     */
+    public List<Map<String, Object>> summarize(long measuredNanos) {
+        double seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long totalErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = recorders.get(endpoint).getIntervalHistogram();
+            long endpointErrors = errors.get(endpoint).sumThenReset();
+            if (histogram.getTotalCount() + endpointErrors > 0) {
+                rows.add(toRow(endpoint.getKey(), histogram, endpointErrors, seconds));
+                total.add(histogram);
+                totalErrors += endpointErrors;
+            }
+        }
+        rows.add(toRow("total", total, totalErrors, seconds));
+        return rows;
+    }
+
+    private static Map<String, Object> toRow(String name, Histogram histogram, long errors, double seconds) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("endpoint", name);
+        row.put("requests", histogram.getTotalCount());
+        row.put("errors", errors);
+        row.put("throughput", histogram.getTotalCount() / seconds);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            row.put(PERCENTILE_NAMES[i], toMillis(histogram.getValueAtPercentile(PERCENTILES[i])));
+        }
+        row.put("max", toMillis(histogram.getMaxValue()));
+        return row;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    public static void print(List<Map<String, Object>> rows, PrintStream out) {
+        out.printf("%-18s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50, ms", "p99, ms", "p99.9, ms", "max, ms");
+        for (Map<String, Object> row : rows) {
+            out.printf("%-18s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    row.get("endpoint"), row.get("requests"), row.get("errors"), row.get("throughput"),
+                    row.get("p50"), row.get("p99"), row.get("p999"), row.get("max"));
+        }
+    }
+
+    /**
+     * Сохраняет параметры прогона и результаты в отдельный файл с меткой времени в имени,
+     * чтобы прогоны можно было сравнивать между собой.
+     */
+    public static Path write(Path directory, Map<String, String> settings, List<Map<String, Object>> rows) {
+        LocalDateTime finishedAt = LocalDateTime.now();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", finishedAt.toString());
+        report.put("settings", settings);
+        report.put("results", rows);
+        Path file = directory.resolve("load-test-" + FILE_NAME_TIME.format(finishedAt) + ".json");
+        try {
+            Files.createDirectories(directory);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,107 @@
+package ru.job4j.dreamjob.load;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Параметры прогона. Ключи с префиксом app. без префикса передаются приложению,
+ * например app.repository.cache.enabled=false, чтобы сравнивать конфигурации на одной нагрузке.
+ */
+public class LoadSettings {
+
+    private static final String APPLICATION_PREFIX = "app.";
+
+    private final Properties properties;
+
+    private final Scenario scenario;
+
+    public LoadSettings(Properties properties) {
+        this.properties = properties;
+        this.scenario = Scenario.parse(properties.getProperty("scenario"));
+    }
+
+    /**
+     * Одновременно работающие виртуальные пользователи: каждый ждёт ответа перед следующим запросом.
+     */
+    public int getThreads() {
+        return getInt("threads");
+    }
+
+    public int getWarmupSeconds() {
+        return getInt("warmup");
+    }
+
+    public int getDurationSeconds() {
+        return getInt("duration");
+    }
+
+    /**
+     * Пауза виртуального пользователя между запросами в миллисекундах.
+     */
+    public int getThinkTime() {
+        return getInt("think-time");
+    }
+
+    public int getUsers() {
+        return getInt("users");
+    }
+
+    public int getVacancies() {
+        return getInt("vacancies");
+    }
+
+    public int getCandidates() {
+        return getInt("candidates");
+    }
+
+    public int getFiles() {
+        return getInt("files");
+    }
+
+    /**
+     * Ширина и высота квадратных изображений, которые получают записи и загружаются при создании вакансий.
+     */
+    public int getImageSize() {
+        return getInt("image-size");
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public Path getReportDirectory() {
+        return Path.of(properties.getProperty("report-directory"));
+    }
+
+    public Map<String, Object> getApplicationProperties() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(APPLICATION_PREFIX)) {
+                result.put(name.substring(APPLICATION_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Все параметры как есть, чтобы сохранить их в отчёте рядом с результатами.
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> result = new LinkedHashMap<>();
+        properties.stringPropertyNames().stream()
+                .sorted()
+                .forEach(name -> result.put(name, properties.getProperty(name)));
+        return result;
+    }
+
+    private int getInt(String name) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Не задан параметр " + name);
+        }
+        return Integer.parseInt(value.strip());
+    }
+
+}
@@ -0,0 +1,112 @@
+package ru.job4j.dreamjob.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.job4j.dreamjob.BenchmarkApplication;
+
+/**
+ * Нагрузочный прогон против приложения, поднятого в этом же процессе на копии тестовой БД H2
+ * и временном каталоге файлов. Параметры берутся из файла настроек, отдельные значения можно
+ * переопределить аргументами вида ключ=значение. Запуск:
+ * mvn -Pbenchmark test-compile exec:exec@load-test -Dload.overrides="threads=32 duration=120"
+ * Итоги печатаются таблицей и сохраняются в JSON в report-directory.
+ */
+public final class LoadTest {
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 60;
+
+    private LoadTest() {
+    }
+
+    /**
+     * @param args путь к файлу настроек, затем необязательные переопределения ключ=значение,
+     *             в том числе несколько в одном аргументе через пробел
+     */
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = new LoadSettings(readProperties(args));
+        Path directory = Files.createTempDirectory("dreamjob-load");
+        Map<String, Object> applicationProperties = new HashMap<>(settings.getApplicationProperties());
+        applicationProperties.put("datasource.url", BenchmarkApplication.copyDatabase(directory));
+        Path fileDirectory = Files.createDirectory(directory.resolve("files"));
+        ConfigurableApplicationContext context =
+                BenchmarkApplication.start(fileDirectory, applicationProperties);
+        try {
+            SeedData seed = SeedData.create(context, settings);
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            List<Map<String, Object>> rows = run(URI.create("http://localhost:" + port), seed, settings);
+            LatencyReport.print(rows, System.out);
+            Path report = LatencyReport.write(settings.getReportDirectory(), settings.toMap(), rows);
+            System.out.println("Report saved to " + report.toAbsolutePath());
+        } finally {
+            context.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    private static Properties readProperties(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Первым аргументом ожидается путь к файлу настроек");
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(args[0]))) {
+            properties.load(reader);
+        }
+        for (int i = 1; i < args.length; i++) {
+            for (String override : args[i].strip().split("\\s+")) {
+                int separator = override.indexOf('=');
+                if (separator > 0) {
+                    properties.setProperty(override.substring(0, separator),
+                            override.substring(separator + 1));
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Запросы разогрева выполняются так же, но их результаты сбрасываются перед замером.
+     */
+    private static List<Map<String, Object>> run(URI baseUri, SeedData seed, LoadSettings settings)
+            throws InterruptedException {
+        LatencyReport report = new LatencyReport();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds());
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+        ExecutorService users = Executors.newFixedThreadPool(settings.getThreads());
+        for (int i = 0; i < settings.getThreads(); i++) {
+            users.execute(new VirtualUser(baseUri, seed, settings.getScenario(), report,
+                    SeedData.getEmail(i % seed.getUsers()), settings.getThinkTime(), deadline));
+        }
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        report.reset();
+        long measuredFrom = System.nanoTime();
+        users.shutdown();
+        long timeout = settings.getDurationSeconds() + SHUTDOWN_GRACE_SECONDS;
+        if (!users.awaitTermination(timeout, TimeUnit.SECONDS)) {
+            users.shutdownNow();
+        }
+        return report.summarize(System.nanoTime() - measuredFrom);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+}
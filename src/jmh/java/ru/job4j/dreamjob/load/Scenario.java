@@ -0,0 +1,66 @@
+package ru.job4j.dreamjob.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Смесь запросов с весами, например "vacancy-list:40,vacancy-detail:30,image:20,login:10".
+ * Каждый следующий запрос виртуального пользователя выбирается случайно пропорционально весу.
+ */
+@ThreadSafe
+public final class Scenario {
+
+    private final Map<Endpoint, Integer> weights;
+
+    private final List<Endpoint> endpoints;
+
+    private final int[] cumulativeWeights;
+
+    private Scenario(Map<Endpoint, Integer> weights) {
+        this.weights = Collections.unmodifiableMap(weights);
+        this.endpoints = new ArrayList<>(weights.keySet());
+        this.cumulativeWeights = new int[endpoints.size()];
+        int total = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            total += weights.get(endpoints.get(i));
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static Scenario parse(String description) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : description.split(",")) {
+            String[] keyAndWeight = part.strip().split(":");
+            if (keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Ожидается запрос:вес, получено: " + part);
+            }
+            int weight = Integer.parseInt(keyAndWeight[1].strip());
+            if (weight > 0) {
+                weights.put(Endpoint.of(keyAndWeight[0].strip()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В сценарии нет ни одного запроса с положительным весом");
+        }
+        return new Scenario(weights);
+    }
+
+    public Map<Endpoint, Integer> getWeights() {
+        return weights;
+    }
+
+    public Endpoint next(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= value) {
+            index++;
+        }
+        return endpoints.get(index);
+    }
+
+}
@@ -0,0 +1,139 @@
+package ru.job4j.dreamjob.load;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.context.ApplicationContext;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.CandidateRepository;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.FileService;
+import ru.job4j.dreamjob.service.UserService;
+
+/**
+ * Данные, которые нагрузка читает: пользователи для входа, вакансии, кандидаты и изображения.
+ * Добавляются напрямую через бины приложения, а не через HTTP, чтобы не тратить на это время прогона.
+ */
+@ThreadSafe
+public final class SeedData {
+
+    public static final String PASSWORD = "password";
+
+    private static final int UPLOADS = 8;
+
+    private final int users;
+
+    private final int[] vacancyIds;
+
+    private final int[] candidateIds;
+
+    private final int[] fileIds;
+
+    private final int[] cityIds;
+
+    private final List<byte[]> uploads;
+
+    private SeedData(int users, int[] vacancyIds, int[] candidateIds, int[] fileIds, int[] cityIds,
+                     List<byte[]> uploads) {
+        this.users = users;
+        this.vacancyIds = vacancyIds;
+        this.candidateIds = candidateIds;
+        this.fileIds = fileIds;
+        this.cityIds = cityIds;
+        this.uploads = uploads;
+    }
+
+    public static SeedData create(ApplicationContext context, LoadSettings settings) {
+        Random random = new Random(0);
+        UserService userService = context.getBean(UserService.class);
+        for (int i = 0; i < settings.getUsers(); i++) {
+            userService.save(new User(0, getEmail(i), "Load " + i, PASSWORD));
+        }
+        FileService fileService = context.getBean(FileService.class);
+        int[] fileIds = new int[settings.getFiles()];
+        for (int i = 0; i < fileIds.length; i++) {
+            byte[] image = createImage(settings.getImageSize(), random);
+            fileIds[i] = fileService.save(new FileDto("image-" + i + ".png", image)).getId();
+        }
+        int[] cityIds = context.getBean(CityService.class).findAll().stream().mapToInt(City::getId).toArray();
+        LocalDateTime now = LocalDateTime.now();
+        VacancyRepository vacancyRepository = context.getBean(VacancyRepository.class);
+        int[] vacancyIds = new int[settings.getVacancies()];
+        for (int i = 0; i < vacancyIds.length; i++) {
+            vacancyIds[i] = vacancyRepository.save(new Vacancy(0, "Java developer " + i,
+                    "Spring Boot, sql2o, PostgreSQL", now.minusMinutes(i), i % 4 != 0,
+                    cityIds[i % cityIds.length], fileIds[i % fileIds.length])).getId();
+        }
+        CandidateRepository candidateRepository = context.getBean(CandidateRepository.class);
+        int[] candidateIds = new int[settings.getCandidates()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = candidateRepository.save(new Candidate(0, "Candidate " + i,
+                    "Java, SQL, Git", now.minusMinutes(i), cityIds[i % cityIds.length],
+                    fileIds[i % fileIds.length])).getId();
+        }
+        List<byte[]> uploads = new ArrayList<>();
+        for (int i = 0; i < UPLOADS; i++) {
+            uploads.add(createImage(settings.getImageSize(), random));
+        }
+        return new SeedData(settings.getUsers(), vacancyIds, candidateIds, fileIds, cityIds, uploads);
+    }
+
+    /**
+     * Шум плохо сжимается, поэтому размер PNG близок к несжатому изображению, как у фотографий.
+     */
+    private static byte[] createImage(int size, Random random) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", output);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return output.toByteArray();
+    }
+
+    public static String getEmail(int user) {
+        return "load-" + user + "@dreamjob.local";
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getVacancyId(Random random) {
+        return vacancyIds[random.nextInt(vacancyIds.length)];
+    }
+
+    public int getCandidateId(Random random) {
+        return candidateIds[random.nextInt(candidateIds.length)];
+    }
+
+    public int getFileId(Random random) {
+        return fileIds[random.nextInt(fileIds.length)];
+    }
+
+    public int getCityId(Random random) {
+        return cityIds[random.nextInt(cityIds.length)];
+    }
+
+    public byte[] getUpload(Random random) {
+        return uploads.get(random.nextInt(uploads.size()));
+    }
+
+}
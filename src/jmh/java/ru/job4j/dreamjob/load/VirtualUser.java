@@ -0,0 +1,158 @@
+package ru.job4j.dreamjob.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пользователь со своей сессией: входит под своей учётной записью и до окончания прогона
+ * отправляет запросы сценария, каждый раз дожидаясь ответа. Так как следующий запрос не уходит,
+ * пока не пришёл предыдущий, при перегрузке задержки занижены, а пропускная способность
+ * ограничена числом пользователей: сравнивать прогоны стоит при одинаковых threads и think-time.
+ */
+public class VirtualUser implements Runnable {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final int THUMBNAIL_WIDTH = 128;
+
+    private final URI baseUri;
+
+    private final SeedData seed;
+
+    private final Scenario scenario;
+
+    private final LatencyReport report;
+
+    private final String email;
+
+    private final int thinkTime;
+
+    private final long deadline;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(TIMEOUT)
+            .build();
+
+    /**
+     * @param deadline значение System.nanoTime(), после которого новые запросы не отправляются
+     */
+    public VirtualUser(URI baseUri, SeedData seed, Scenario scenario, LatencyReport report, String email,
+                       int thinkTime, long deadline) {
+        this.baseUri = baseUri;
+        this.seed = seed;
+        this.scenario = scenario;
+        this.report = report;
+        this.email = email;
+        this.thinkTime = thinkTime;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+        Random random = ThreadLocalRandom.current();
+        try {
+            execute(Endpoint.LOGIN, random);
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                execute(scenario.next(random), random);
+                if (thinkTime > 0) {
+                    TimeUnit.MILLISECONDS.sleep(thinkTime);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Endpoint endpoint, Random random) throws InterruptedException {
+        HttpRequest request = createRequest(endpoint, random);
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() == endpoint.getExpectedStatus();
+        } catch (IOException e) {
+            success = false;
+        }
+        report.record(endpoint, System.nanoTime() - start, success);
+    }
+
+    private HttpRequest createRequest(Endpoint endpoint, Random random) {
+        return switch (endpoint) {
+            case LOGIN -> post("/users/login", "application/x-www-form-urlencoded",
+                    HttpRequest.BodyPublishers.ofString(toForm(Map.of("email", email,
+                            "password", SeedData.PASSWORD))));
+            case VACANCY_LIST -> get("/vacancies");
+            case VACANCY_DETAIL -> get("/vacancies/" + seed.getVacancyId(random));
+            case CANDIDATE_LIST -> get("/candidates");
+            case CANDIDATE_DETAIL -> get("/candidates/" + seed.getCandidateId(random));
+            case IMAGE -> get("/files/" + seed.getFileId(random));
+            case THUMBNAIL -> get("/files/" + seed.getFileId(random) + "?w=" + THUMBNAIL_WIDTH);
+            case VACANCY_CREATE -> createVacancy(random);
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private HttpRequest post(String path, String contentType, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build();
+    }
+
+    private static String toForm(Map<String, String> fields) {
+        StringBuilder form = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return form.toString();
+    }
+
+    /**
+     * Та же форма multipart/form-data, которую отправляет страница создания вакансии.
+     */
+    private HttpRequest createVacancy(Random random) {
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Map<String, String> fields = Map.of(
+                "title", "Load test vacancy",
+                "description", "Created by the load test",
+                "visible", "true",
+                "cityId", String.valueOf(seed.getCityId(random)));
+        fields.forEach((name, value) -> body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8)));
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"upload.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(seed.getUpload(random));
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return post("/vacancies/create", "multipart/form-data; boundary=" + boundary,
+                HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+    }
+
+}
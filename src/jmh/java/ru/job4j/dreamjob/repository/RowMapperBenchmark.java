@@ -0,0 +1,119 @@
+package ru.job4j.dreamjob.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.InstrumentedDataSource;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
+import ru.job4j.dreamjob.model.Vacancy;
+
+/**
+ * Разбор строк через рефлексию sql2o (setColumnMappings) против RowMappers на одной и той же
+ * таблице H2 в памяти. Запуск:
+ * mvn -Pbenchmark test-compile exec:exec@benchmarks -Dbenchmark.includes=RowMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String SELECT_VACANCIES = "SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies";
+
+    private static final String SELECT_SUMMARIES =
+            "SELECT " + RowMappers.VACANCY_SUMMARY_COLUMNS + " FROM vacancies";
+
+    @Param({"20", "1000"})
+    private int rows;
+
+    private InstrumentedDataSource dataSource;
+
+    private Sql2o sql2o;
+
+    @Setup
+    public void createTable() {
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        dataSource = configuration.connectionPool(
+                "jdbc:h2:mem:row_mappers;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "", "",
+                new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(dataSource);
+        try (Connection connection = sql2o.beginTransaction()) {
+            connection.createQuery("DROP TABLE IF EXISTS vacancies").executeUpdate();
+            connection.createQuery("""
+                    CREATE TABLE vacancies(id SERIAL PRIMARY KEY, title VARCHAR, description VARCHAR,
+                        creation_date TIMESTAMP, visible BOOLEAN, city_id INT, file_id INT)
+                    """).executeUpdate();
+            Query insert = connection.createQuery("""
+                    INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
+                    VALUES (:title, :description, :creationDate, TRUE, 1, :fileId)
+                    """);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < rows; i++) {
+                insert.addParameter("title", "Java developer " + i)
+                        .addParameter("description", "Spring Boot, sql2o, PostgreSQL")
+                        .addParameter("creationDate", now.minusMinutes(i))
+                        .addParameter("fileId", i)
+                        .addToBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    @TearDown
+    public void closeDataSource() throws Exception {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Vacancy> vacanciesByReflection() {
+        try (Connection connection = sql2o.open()) {
+            return connection.createQuery(SELECT_VACANCIES)
+                    .setColumnMappings(Vacancy.COLUMN_MAPPING)
+                    .executeAndFetch(Vacancy.class);
+        }
+    }
+
+    @Benchmark
+    public List<Vacancy> vacanciesByIndex() {
+        try (Connection connection = sql2o.open()) {
+            return connection.createQuery(SELECT_VACANCIES).executeAndFetch(RowMappers.VACANCY);
+        }
+    }
+
+    @Benchmark
+    public List<VacancySummaryDto> summariesByReflection() {
+        try (Connection connection = sql2o.open()) {
+            return connection.createQuery(SELECT_SUMMARIES)
+                    .setColumnMappings(Vacancy.COLUMN_MAPPING)
+                    .executeAndFetch(VacancySummaryDto.class);
+        }
+    }
+
+    @Benchmark
+    public List<VacancySummaryDto> summariesByIndex() {
+        try (Connection connection = sql2o.open()) {
+            return connection.createQuery(SELECT_SUMMARIES).executeAndFetch(RowMappers.VACANCY_SUMMARY);
+        }
+    }
+
+}
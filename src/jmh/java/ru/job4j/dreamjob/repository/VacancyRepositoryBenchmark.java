@@ -0,0 +1,139 @@
+package ru.job4j.dreamjob.repository;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.InstrumentedDataSource;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+
+/**
+ * Одни и те же операции над MemoryVacancyRepository и Sql2oVacancyRepository на тестовой БД H2.
+ * Записи, добавленные для замера, удаляются в конце. Запуск:
+ * mvn -Pbenchmark test-compile exec:exec@benchmarks -Dbenchmark.includes=VacancyRepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VacancyRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"memory", "sql2o"})
+    private String implementation;
+
+    @Param({"1000"})
+    private int rows;
+
+    private final VacancyCriteria allVacancies = new VacancyCriteria();
+
+    private InstrumentedDataSource dataSource;
+
+    private Sql2oFileRepository fileRepository;
+
+    private File file;
+
+    private VacancyRepository repository;
+
+    private int fileId;
+
+    private int[] ids;
+
+    @Setup
+    public void fillRepository() throws Exception {
+        if ("sql2o".equals(implementation)) {
+            Sql2oUnitOfWork unitOfWork = createUnitOfWork();
+            fileRepository = new Sql2oFileRepository(unitOfWork);
+            file = fileRepository.save(new File("benchmark", "benchmark/" + System.nanoTime()));
+            fileId = file.getId();
+            repository = new Sql2oVacancyRepository(unitOfWork, new InProcessInvalidationBus());
+        } else {
+            repository = new MemoryVacancyRepository();
+        }
+        ids = new int[rows];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            ids[i] = repository.save(new Vacancy(0, "Java developer " + i, "Spring Boot, sql2o, PostgreSQL",
+                    now.minusMinutes(i), i % 2 == 0, 1, fileId)).getId();
+        }
+    }
+
+    private Sql2oUnitOfWork createUnitOfWork() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = VacancyRepositoryBenchmark.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        dataSource = configuration.connectionPool(
+                properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"),
+                properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties());
+        return new Sql2oUnitOfWork(configuration.databaseClient(dataSource));
+    }
+
+    @TearDown
+    public void clearRepository() throws Exception {
+        for (int id : ids) {
+            repository.deleteById(id);
+        }
+        if (dataSource != null) {
+            fileRepository.deleteById(file.getId());
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Vacancy> findById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Collection<Vacancy> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public List<VacancySummaryDto> findFirstPage() {
+        return repository.findPageAfter(null, allVacancies, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<VacancySummaryDto> search() {
+        return repository.search("developer 99", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public boolean saveAndDelete() {
+        Vacancy vacancy = repository.save(new Vacancy(0, "Temporary", "Deleted right away",
+                LocalDateTime.now(), true, 1, fileId));
+        return repository.deleteById(vacancy.getId());
+    }
+
+}
@@ -0,0 +1,113 @@
+package ru.job4j.dreamjob.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ByteArrayResource;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.MemoryFileRepository;
+import ru.job4j.dreamjob.storage.LocalFileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
+
+/**
+ * Сохранение и чтение файлов через SimpleFileService с локальным хранилищем во временном каталоге.
+ * Файлы до 1 МБ после первого чтения отдаются из кэша, 4 МБ каждый раз читаются с диска.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec@benchmarks -Dbenchmark.includes=FileServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileServiceBenchmark {
+
+    private static final long MAX_CACHE_SIZE = 64L * 1024 * 1024;
+
+    private static final long MAX_CACHED_FILE_SIZE = 1024 * 1024;
+
+    @Param({"1024", "65536", "4194304"})
+    private int size;
+
+    private final Queue<File> saved = new ConcurrentLinkedQueue<>();
+
+    private Path directory;
+
+    private ImageResizer imageResizer;
+
+    private SimpleFileService fileService;
+
+    private byte[] content;
+
+    private int storedFileId;
+
+    @Setup
+    public void createService() throws IOException {
+        directory = Files.createTempDirectory("dreamjob-benchmark");
+        imageResizer = new ImageResizer(List.of(64, 128), 1_000_000, 1, 4);
+        fileService = new SimpleFileService(new MemoryFileRepository(), new LocalFileStorage(),
+                new StorageLayout(directory.toString(), true), imageResizer, false,
+                MAX_CACHE_SIZE, MAX_CACHED_FILE_SIZE);
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        storedFileId = fileService.save(new FileDto("stored.bin", content)).getId();
+    }
+
+    /**
+     * Сохранённые за итерацию файлы удаляются, чтобы каталог не рос от итерации к итерации.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteSavedFiles() {
+        File file;
+        while ((file = saved.poll()) != null) {
+            fileService.deleteById(file.getId());
+        }
+    }
+
+    @TearDown
+    public void deleteDirectory() throws IOException {
+        imageResizer.shutdown();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public File save() {
+        File file = fileService.save(
+                new FileUploadDto("upload.bin", content.length, new ByteArrayResource(content)));
+        saved.add(file);
+        return file;
+    }
+
+    @Benchmark
+    public Optional<FileDto> getFileById() {
+        return fileService.getFileById(storedFileId);
+    }
+
+}
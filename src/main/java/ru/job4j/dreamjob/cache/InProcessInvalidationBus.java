@@ -0,0 +1,54 @@
+package ru.job4j.dreamjob.cache;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Шина в пределах одной JVM: для единственной ноды и для тестов. Сообщение доставляется
+ * подписчикам сразу в потоке отправителя.
+ */
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "repository.cache.invalidation", havingValue = "local", matchIfMissing = true)
+public class InProcessInvalidationBus implements InvalidationBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessInvalidationBus.class.getName());
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String entity, int id) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidate(entity, id);
+            } catch (RuntimeException e) {
+                LOG.error("Ошибка при сбросе {} {} из кэша", entity, id, e);
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает все кэши подписчиков, как при потере сообщений.
+     */
+    public void publishAll() {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidateAll();
+            } catch (RuntimeException e) {
+                LOG.error("Ошибка при полном сбросе кэша", e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+}
@@ -0,0 +1,17 @@
+package ru.job4j.dreamjob.cache;
+
+/**
+ * Шина сообщений об изменённых записях между нодами приложения. Каждая нода держит свои кэши
+ * в памяти и по сообщениям шины сбрасывает устаревшие записи.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Сообщает всем нодам, включая текущую, что запись изменилась. Внутри транзакции сообщение
+     * может быть доставлено только после коммита.
+     */
+    void publish(String entity, int id);
+
+    void subscribe(InvalidationListener listener);
+
+}
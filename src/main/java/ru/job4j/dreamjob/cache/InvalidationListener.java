@@ -0,0 +1,18 @@
+package ru.job4j.dreamjob.cache;
+
+/**
+ * Получатель сообщений об изменённых записях, см. {@link InvalidationBus}.
+ */
+public interface InvalidationListener {
+
+    /**
+     * Запись entity с ключом id изменилась или удалена.
+     */
+    void invalidate(String entity, int id);
+
+    /**
+     * Часть сообщений могла потеряться, поэтому сбросить нужно всё.
+     */
+    void invalidateAll();
+
+}
@@ -0,0 +1,67 @@
+package ru.job4j.dreamjob.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+public class LruCacheMetrics extends CacheMeterBinder<LruCache<?, ?>> {
+
+    public LruCacheMetrics(LruCache<?, ?> cache, String cacheName, Iterable<Tag> tags) {
+        super(cache, cacheName, tags);
+    }
+
+    @Override
+    protected Long size() {
+        LruCache<?, ?> cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        LruCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        LruCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.getMissCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        LruCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.getEvictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        LruCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.getLoadCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        Gauge.builder("cache.weight", getCache(), LruCache::getWeight)
+                .tags(getTagsWithCacheName())
+                .baseUnit("bytes")
+                .description("Суммарный вес записей в кэше")
+                .register(registry);
+        Gauge.builder("cache.max.weight", getCache(), LruCache::getMaxWeight)
+                .tags(getTagsWithCacheName())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", getCache(), LruCacheMetrics::hitRatio)
+                .tags(getTagsWithCacheName())
+                .description("Доля обращений, обслуженных из кэша")
+                .register(registry);
+    }
+
+    private static double hitRatio(LruCache<?, ?> cache) {
+        long hits = cache.getHitCount();
+        long requests = hits + cache.getMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+}
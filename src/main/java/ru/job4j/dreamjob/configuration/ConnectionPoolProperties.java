@@ -0,0 +1,177 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки пула соединений с префиксом datasource.pool. Значения по умолчанию рассчитаны
+ * на одну ноду приложения и PostgreSQL с max_connections по умолчанию.
+ */
+@ConfigurationProperties("datasource.pool")
+public class ConnectionPoolProperties {
+
+    /**
+     * Наибольшее число соединений, выданных и простаивающих вместе.
+     */
+    private int maxTotal = 20;
+
+    private int maxIdle = 20;
+
+    private int minIdle = 2;
+
+    private int initialSize = 2;
+
+    /**
+     * Сколько миллисекунд ждать свободного соединения, прежде чем получить ошибку.
+     */
+    private long maxWait = 5000;
+
+    private boolean testOnBorrow = true;
+
+    /**
+     * Секунд на проверку соединения Connection.isValid перед выдачей.
+     */
+    private int validationTimeout = 2;
+
+    /**
+     * Период проверки простаивающих соединений, мс.
+     */
+    private long timeBetweenEvictionRuns = 30000;
+
+    /**
+     * Кэшировать PreparedStatement в каждом соединении.
+     */
+    private boolean poolPreparedStatements = true;
+
+    private int maxOpenPreparedStatements = 100;
+
+    /**
+     * Забирать соединения, не возвращённые дольше removeAbandonedTimeout секунд.
+     */
+    private boolean removeAbandoned = true;
+
+    private int removeAbandonedTimeout = 60;
+
+    /**
+     * DBCP запоминает стек выдачи каждого соединения, чтобы вывести его в лог при утечке.
+     * Стек снимается при каждой выдаче, поэтому по умолчанию выключено: включать на время поиска утечки.
+     */
+    private boolean logAbandoned;
+
+    /**
+     * Удержание соединения дольше этого числа миллисекунд пишется в лог.
+     */
+    private long holdWarnThreshold = 1000;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public long getTimeBetweenEvictionRuns() {
+        return timeBetweenEvictionRuns;
+    }
+
+    public void setTimeBetweenEvictionRuns(long timeBetweenEvictionRuns) {
+        this.timeBetweenEvictionRuns = timeBetweenEvictionRuns;
+    }
+
+    public boolean isPoolPreparedStatements() {
+        return poolPreparedStatements;
+    }
+
+    public void setPoolPreparedStatements(boolean poolPreparedStatements) {
+        this.poolPreparedStatements = poolPreparedStatements;
+    }
+
+    public int getMaxOpenPreparedStatements() {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements) {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+
+    public boolean isRemoveAbandoned() {
+        return removeAbandoned;
+    }
+
+    public void setRemoveAbandoned(boolean removeAbandoned) {
+        this.removeAbandoned = removeAbandoned;
+    }
+
+    public int getRemoveAbandonedTimeout() {
+        return removeAbandonedTimeout;
+    }
+
+    public void setRemoveAbandonedTimeout(int removeAbandonedTimeout) {
+        this.removeAbandonedTimeout = removeAbandonedTimeout;
+    }
+
+    public boolean isLogAbandoned() {
+        return logAbandoned;
+    }
+
+    public void setLogAbandoned(boolean logAbandoned) {
+        this.logAbandoned = logAbandoned;
+    }
+
+    public long getHoldWarnThreshold() {
+        return holdWarnThreshold;
+    }
+
+    public void setHoldWarnThreshold(long holdWarnThreshold) {
+        this.holdWarnThreshold = holdWarnThreshold;
+    }
+
+}
\ No newline at end of file
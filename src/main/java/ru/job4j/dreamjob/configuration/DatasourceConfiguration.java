@@ -1,9 +1,12 @@
 package ru.job4j.dreamjob.configuration;
 
-import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.sql2o.Sql2o;
 import org.sql2o.converters.Converter;
 import org.sql2o.converters.ConverterException;
@@ -15,26 +18,68 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 
 @Configuration
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
 public class DatasourceConfiguration {
 
+    @Primary
     @Bean
-    public DataSource connectionPool(@Value("${datasource.url}") String url,
-                                     @Value("${datasource.username}") String username,
-                                     @Value("${datasource.password}") String password) {
-        return new BasicDataSource() {
-            {
-                setUrl(url);
-                setUsername(username);
-                setPassword(password);
-            }
-        };
+    public InstrumentedDataSource connectionPool(@Value("${datasource.url}") String url,
+                                                 @Value("${datasource.username}") String username,
+                                                 @Value("${datasource.password}") String password,
+                                                 ConnectionPoolProperties pool) {
+        return createPool("primary", url, username, password, pool);
+    }
+
+    /**
+     * Реплика только для чтения. Через неё идут чтения Sql2oUnitOfWork.withReadConnection.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    public InstrumentedDataSource replicaConnectionPool(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username}") String username,
+            @Value("${datasource.replica.password}") String password,
+            ConnectionPoolProperties pool) {
+        InstrumentedDataSource dataSource = createPool("replica", url, username, password, pool);
+        dataSource.setDefaultReadOnly(true);
+        return dataSource;
     }
 
+    @Primary
     @Bean
     public Sql2o databaseClient(DataSource dataSource) {
         return new Sql2o(dataSource, createConverters());
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    public Sql2o replicaDatabaseClient(@Qualifier("replicaConnectionPool") DataSource dataSource) {
+        return new Sql2o(dataSource, createConverters());
+    }
+
+    private InstrumentedDataSource createPool(String name, String url, String username, String password,
+                                              ConnectionPoolProperties pool) {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(name, pool.getHoldWarnThreshold());
+        dataSource.setUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaxTotal(pool.getMaxTotal());
+        dataSource.setMaxIdle(pool.getMaxIdle());
+        dataSource.setMinIdle(pool.getMinIdle());
+        dataSource.setInitialSize(pool.getInitialSize());
+        dataSource.setMaxWaitMillis(pool.getMaxWait());
+        dataSource.setTestOnBorrow(pool.isTestOnBorrow());
+        dataSource.setValidationQueryTimeout(pool.getValidationTimeout());
+        dataSource.setTimeBetweenEvictionRunsMillis(pool.getTimeBetweenEvictionRuns());
+        dataSource.setPoolPreparedStatements(pool.isPoolPreparedStatements());
+        dataSource.setMaxOpenPreparedStatements(pool.getMaxOpenPreparedStatements());
+        dataSource.setRemoveAbandonedOnBorrow(pool.isRemoveAbandoned());
+        dataSource.setRemoveAbandonedOnMaintenance(pool.isRemoveAbandoned());
+        dataSource.setRemoveAbandonedTimeout(pool.getRemoveAbandonedTimeout());
+        dataSource.setLogAbandoned(pool.isLogAbandoned());
+        return dataSource;
+    }
+
     private Quirks createConverters() {
         Converter<LocalDateTime> converter = new Converter<>() {
             @Override
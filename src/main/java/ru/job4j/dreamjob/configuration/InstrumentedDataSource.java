@@ -0,0 +1,258 @@
+package ru.job4j.dreamjob.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.ConnectionFactory;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пул DBCP, который публикует занятые, простаивающие и ожидающие соединения, время ожидания
+ * соединения и время его удержания. Выданные соединения раз в holdWarnThreshold проверяет фоновый
+ * поток: соединение, удерживаемое дольше порога, попадает в лог один раз, пока его ещё держат,
+ * вместе с текущим стеком держащего потока. Сама выдача соединения стек не снимает.
+ * Соединение, которое DBCP забрал как брошенное, через прокси не закрывается, поэтому фоновый
+ * поток сам перестаёт следить за соединениями, закрытыми под ним.
+ */
+@ThreadSafe
+public class InstrumentedDataSource extends BasicDataSource implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedDataSource.class.getName());
+
+    private final Tags tags;
+
+    private final long holdWarnThreshold;
+
+    private final Set<HoldTracker> holds = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService sweeper;
+
+    private volatile Timer waitTimer;
+
+    private volatile Timer usageTimer;
+
+    /**
+     * @param name значение тега pool у метрик, чтобы различать пулы основной БД и реплики
+     * @param holdWarnThreshold сколько миллисекунд можно держать соединение без предупреждения в логе
+     */
+    public InstrumentedDataSource(String name, long holdWarnThreshold) {
+        this(name, holdWarnThreshold, Math.max(holdWarnThreshold, 1));
+    }
+
+    /**
+     * @param sweepPeriod через сколько миллисекунд фоновый поток проверяет выданные соединения
+     */
+    InstrumentedDataSource(String name, long holdWarnThreshold, long sweepPeriod) {
+        this.tags = Tags.of("pool", name);
+        this.holdWarnThreshold = holdWarnThreshold;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-hold-sweeper-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::reportLongHolds, sweepPeriod, sweepPeriod,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = super.getConnection();
+        } finally {
+            Timer timer = waitTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        HoldTracker tracker = new HoldTracker(connection);
+        holds.add(tracker);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, tracker);
+    }
+
+    /**
+     * DBCP забирает брошенное соединение через abort, после которого не всякий драйвер
+     * считает соединение закрытым. Обёртка запоминает abort, и isClosed после него всегда true.
+     */
+    @Override
+    protected ConnectionFactory createConnectionFactory() throws SQLException {
+        ConnectionFactory factory = super.createConnectionFactory();
+        return () -> {
+            Connection connection = factory.createConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new AbortTracker(connection));
+        };
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        sweeper.shutdownNow();
+        super.close();
+    }
+
+    /**
+     * Пишет в лог соединения, которые держат дольше порога и о которых ещё не сообщалось.
+     *
+     * @return сколько таких соединений найдено
+     */
+    int reportLongHolds() {
+        int reported = 0;
+        long now = System.nanoTime();
+        for (HoldTracker hold : holds) {
+            if (hold.isReclaimed()) {
+                hold.release();
+                continue;
+            }
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - hold.acquiredAt);
+            if (heldMillis > holdWarnThreshold && hold.markReported()) {
+                Throwable stack = new Throwable("Current stack of " + hold.holder.getName());
+                stack.setStackTrace(hold.holder.getStackTrace());
+                LOGGER.warn("Connection held for {} ms by {}, threshold {} ms", heldMillis,
+                        hold.holder.getName(), holdWarnThreshold, stack);
+                reported++;
+            }
+        }
+        return reported;
+    }
+
+    /**
+     * Число потоков, ждущих свободного соединения.
+     */
+    public int getNumWaiters() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("datasource.pool.active", this, InstrumentedDataSource::getNumActive)
+                .description("Соединения, выданные приложению")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("datasource.pool.idle", this, InstrumentedDataSource::getNumIdle)
+                .description("Простаивающие соединения в пуле")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("datasource.pool.waiters", this, InstrumentedDataSource::getNumWaiters)
+                .description("Потоки, ждущие соединения")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("datasource.pool.max", this, InstrumentedDataSource::getMaxTotal)
+                .tags(tags)
+                .register(registry);
+        waitTimer = Timer.builder("datasource.pool.wait")
+                .description("Время получения соединения из пула")
+                .publishPercentileHistogram()
+                .tags(tags)
+                .register(registry);
+        usageTimer = Timer.builder("datasource.pool.usage")
+                .description("Время от получения соединения до возврата в пул")
+                .publishPercentileHistogram()
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static final class AbortTracker implements InvocationHandler {
+
+        private final Connection target;
+
+        private volatile boolean aborted;
+
+        private AbortTracker(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("abort".equals(method.getName())) {
+                aborted = true;
+            } else if ("isClosed".equals(method.getName()) && aborted) {
+                return true;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+    }
+
+    private final class HoldTracker implements InvocationHandler {
+
+        private final Connection target;
+
+        private final long acquiredAt = System.nanoTime();
+
+        private final Thread holder = Thread.currentThread();
+
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private HoldTracker(Connection target) {
+            this.target = target;
+        }
+
+        /**
+         * Закрыто ли соединение под прокси, хотя держащий поток его не закрывал.
+         */
+        private boolean isReclaimed() {
+            try {
+                return target.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        private boolean markReported() {
+            return reported.compareAndSet(false, true);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName())) {
+                release();
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            holds.remove(this);
+            Timer timer = usageTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+    }
+
+}
@@ -1,11 +1,17 @@
 package ru.job4j.dreamjob.controller;
 
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.service.CandidateService;
 import ru.job4j.dreamjob.service.CityService;
@@ -19,15 +25,46 @@ public class CandidateController {
 
     private final CandidateService candidateService;
     private final CityService cityService;
+    private final int pageSize;
 
-    public CandidateController(CandidateService candidateService, CityService cityService) {
+    public CandidateController(CandidateService candidateService, CityService cityService,
+                               @Value("${page.size}") int pageSize) {
         this.cityService = cityService;
         this.candidateService = candidateService;
+        this.pageSize = pageSize;
     }
 
+    /**
+     * Список выводится постранично по ключу (creation_date, id): after - курсор для перехода
+     * к следующей странице, before - к предыдущей. Отбор по городу и датам выполняет база,
+     * условия передаются параметрами запроса и сохраняются в ссылках страниц.
+     */
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("candidates", candidateService.findAll());
+    public String getAll(Model model, @RequestParam(required = false) String after,
+                         @RequestParam(required = false) String before,
+                         @ModelAttribute("criteria") CandidateCriteria criteria) {
+        Optional<PageCursor> beforeCursor = PageCursor.parse(before);
+        PageDto<CandidateSummaryDto> page = beforeCursor.isPresent()
+                ? candidateService.findPreviousPage(beforeCursor.get(), criteria, pageSize)
+                : candidateService.findNextPage(PageCursor.parse(after).orElse(null), criteria, pageSize);
+        model.addAttribute("candidates", page.getItems());
+        model.addAttribute("page", page);
+        model.addAttribute("cities", cityService.findAll());
+        return "candidates/list";
+    }
+
+    /**
+     * Результаты поиска выводятся в том же списке, но постранично по номеру страницы.
+     */
+    @GetMapping("/search")
+    public String search(Model model, @RequestParam String query,
+                         @RequestParam(defaultValue = "0") int page) {
+        if (query.isBlank()) {
+            return "redirect:/candidates";
+        }
+        SearchPageDto<CandidateSummaryDto> result = candidateService.search(query, page, pageSize);
+        model.addAttribute("candidates", result.getItems());
+        model.addAttribute("search", result);
         return "candidates/list";
     }
 
@@ -63,7 +100,7 @@ public class CandidateController {
     public String create(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file,
                          Model model) {
         try {
-            candidateService.save(candidate, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            candidateService.save(candidate, toUpload(file));
             return "redirect:/candidates";
         } catch (Exception e) {
             model.addAttribute("message", e.getMessage());
@@ -75,8 +112,7 @@ public class CandidateController {
     public String updateCandidate(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file,
                                   Model model) {
         try {
-            boolean isUpdated = candidateService.update(candidate,
-                    new FileDto(file.getOriginalFilename(), file.getBytes()));
+            boolean isUpdated = candidateService.update(candidate, toUpload(file));
             if (!isUpdated) {
                 model.addAttribute("message", "Кандидат с указанным id не найден.");
                 return "errors/404";
@@ -88,4 +124,8 @@ public class CandidateController {
         }
     }
 
+    private FileUploadDto toUpload(MultipartFile file) {
+        return new FileUploadDto(file.getOriginalFilename(), file.getSize(), file);
+    }
+
 }
\ No newline at end of file
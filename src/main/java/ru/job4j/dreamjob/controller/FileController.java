@@ -1,29 +1,130 @@
 package ru.job4j.dreamjob.controller;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.service.FileService;
 
 @RestController
 @RequestMapping("/files")
 public class FileController {
 
+    /**
+     * Сохранённый файл никогда не меняется на месте: новая загрузка получает новый путь и новую
+     * запись в files, поэтому ответ можно кэшировать бессрочно.
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePrivate()
+            .immutable();
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
     private final FileService fileService;
 
     public FileController(FileService fileService) {
         this.fileService = fileService;
     }
 
+    /**
+     * С параметром w отдаётся копия изображения шириной w пикселей. Если пул уменьшения
+     * изображений перегружен, клиент получает 503 и может повторить запрос позже.
+     * Условный запрос проверяется по метаданным, содержимое загружается только для ответа 200.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getById(@PathVariable int id) {
-        var contentOptional = fileService.getFileById(id);
-        if (contentOptional.isEmpty()) {
+    public ResponseEntity<?> getById(@PathVariable int id,
+                                     @RequestParam(name = "w", required = false) Integer width,
+                                     WebRequest request) {
+        Optional<File> fileOptional = width == null
+                ? fileService.findFileById(id)
+                : fileService.findFileById(id, width);
+        if (fileOptional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(contentOptional.get().getContent());
+        String eTag = getETag(id, fileOptional.get());
+        if (isNotModified(request, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(CACHE_CONTROL)
+                    .build();
+        }
+        Optional<FileResourceDto> resourceOptional;
+        try {
+            resourceOptional = width == null
+                    ? fileService.getFileResourceById(id)
+                    : fileService.getFileResourceById(id, width);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        if (resourceOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        FileResourceDto file = resourceOptional.get();
+        var response = ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .contentType(getMediaType(file.getName()));
+        long lastModified = getLastModified(file.getResource());
+        if (lastModified > 0) {
+            response.lastModified(lastModified);
+        }
+        return response.body(file.getResource());
+    }
+
+    /**
+     * Путь уменьшенной копии содержит уже нормализованную ширину, поэтому запросы с w=100 и w=128
+     * получают одну копию и один ETag.
+     */
+    private String getETag(int id, File file) {
+        byte[] identity = file.getPath().getBytes(StandardCharsets.UTF_8);
+        return "\"" + id + "-" + DigestUtils.md5DigestAsHex(identity) + "\"";
+    }
+
+    /**
+     * Содержимое файла с данным id неизменно, поэтому любой If-Modified-Since означает,
+     * что у клиента уже актуальная копия. Диск при этом не читается.
+     */
+    private boolean isNotModified(WebRequest request, String eTag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> "*".equals(tag) || eTag.equals(tag));
+        }
+        return request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    private long getLastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private MediaType getMediaType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
     }
 
-}
\ No newline at end of file
+}
@@ -1,15 +1,23 @@
 package ru.job4j.dreamjob.controller;
 
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
 import ru.job4j.dreamjob.service.VacancyService;
 
+import java.util.Optional;
+
 @ThreadSafe
 @Controller
 @RequestMapping("/vacancies")
@@ -17,15 +25,46 @@ public class VacancyController {
 
     private final VacancyService vacancyService;
     private final CityService cityService;
+    private final int pageSize;
 
-    public VacancyController(VacancyService vacancyService, CityService cityService) {
+    public VacancyController(VacancyService vacancyService, CityService cityService,
+                             @Value("${page.size}") int pageSize) {
         this.vacancyService = vacancyService;
         this.cityService = cityService;
+        this.pageSize = pageSize;
     }
 
+    /**
+     * Список выводится постранично по ключу (creation_date, id): after - курсор для перехода
+     * к следующей странице, before - к предыдущей. Отбор по городу, видимости и датам
+     * выполняет база, условия передаются параметрами запроса и сохраняются в ссылках страниц.
+     */
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("vacancies", vacancyService.findAll());
+    public String getAll(Model model, @RequestParam(required = false) String after,
+                         @RequestParam(required = false) String before,
+                         @ModelAttribute("criteria") VacancyCriteria criteria) {
+        Optional<PageCursor> beforeCursor = PageCursor.parse(before);
+        PageDto<VacancySummaryDto> page = beforeCursor.isPresent()
+                ? vacancyService.findPreviousPage(beforeCursor.get(), criteria, pageSize)
+                : vacancyService.findNextPage(PageCursor.parse(after).orElse(null), criteria, pageSize);
+        model.addAttribute("vacancies", page.getItems());
+        model.addAttribute("page", page);
+        model.addAttribute("cities", cityService.findAll());
+        return "vacancies/list";
+    }
+
+    /**
+     * Результаты поиска выводятся в том же списке, но постранично по номеру страницы.
+     */
+    @GetMapping("/search")
+    public String search(Model model, @RequestParam String query,
+                         @RequestParam(defaultValue = "0") int page) {
+        if (query.isBlank()) {
+            return "redirect:/vacancies";
+        }
+        SearchPageDto<VacancySummaryDto> result = vacancyService.search(query, page, pageSize);
+        model.addAttribute("vacancies", result.getItems());
+        model.addAttribute("search", result);
         return "vacancies/list";
     }
 
@@ -61,7 +100,7 @@ public class VacancyController {
     public String create(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file,
                          Model model) {
         try {
-            vacancyService.save(vacancy, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            vacancyService.save(vacancy, toUpload(file));
             return "redirect:/vacancies";
         } catch (Exception e) {
             model.addAttribute("message", e.getMessage());
@@ -73,8 +112,7 @@ public class VacancyController {
     public String updateVacancy(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file,
                                 Model model) {
         try {
-            boolean isUpdated = vacancyService.update(vacancy,
-                    new FileDto(file.getOriginalFilename(), file.getBytes()));
+            boolean isUpdated = vacancyService.update(vacancy, toUpload(file));
             if (!isUpdated) {
                 model.addAttribute("message", "Вакансия с указанным идентификатором не найдена");
                 return "errors/404";
@@ -86,4 +124,8 @@ public class VacancyController {
         }
     }
 
+    private FileUploadDto toUpload(MultipartFile file) {
+        return new FileUploadDto(file.getOriginalFilename(), file.getSize(), file);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Условия отбора кандидатов. Незаданное (null) условие не ограничивает выборку. Даты from и to
+ * включительные и приходят из параметров запроса в виде 2023-03-21.
+ */
+public class CandidateCriteria {
+
+    private Integer cityId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    public CandidateCriteria() {
+    }
+
+    public CandidateCriteria(Integer cityId, LocalDate from, LocalDate to) {
+        this.cityId = cityId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Начало диапазона дат создания как момент времени, включительно.
+     */
+    public LocalDateTime getCreatedFrom() {
+        return from == null ? null : from.atStartOfDay();
+    }
+
+    /**
+     * Конец диапазона дат создания как момент времени, не включительно: начало следующего дня.
+     */
+    public LocalDateTime getCreatedBefore() {
+        return to == null ? null : to.plusDays(1).atStartOfDay();
+    }
+
+    public Integer getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Integer cityId) {
+        this.cityId = cityId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+}
\ No newline at end of file
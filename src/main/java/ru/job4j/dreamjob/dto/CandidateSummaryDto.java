@@ -0,0 +1,60 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка кандидатов: только выводимые в списке столбцы, без описания.
+ */
+public class CandidateSummaryDto {
+
+    private int id;
+
+    private String name;
+
+    private LocalDateTime creationDate;
+
+    private int fileId;
+
+    public CandidateSummaryDto() {
+    }
+
+    public CandidateSummaryDto(int id, String name, LocalDateTime creationDate, int fileId) {
+        this.id = id;
+        this.name = name;
+        this.creationDate = creationDate;
+        this.fileId = fileId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(int fileId) {
+        this.fileId = fileId;
+    }
+
+}
@@ -0,0 +1,43 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.core.io.Resource;
+
+public class FileResourceDto {
+
+    private String name;
+
+    private String path;
+
+    private Resource resource;
+
+    public FileResourceDto(String name, String path, Resource resource) {
+        this.name = name;
+        this.path = path;
+        this.resource = resource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+}
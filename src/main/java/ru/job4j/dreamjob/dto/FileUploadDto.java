@@ -0,0 +1,54 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class FileUploadDto {
+
+    private String name;
+
+    private long size;
+
+    private InputStreamSource source;
+
+    public FileUploadDto(String name, long size, InputStreamSource source) {
+        this.name = name;
+        this.size = size;
+        this.source = source;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public InputStreamSource getSource() {
+        return source;
+    }
+
+    public void setSource(InputStreamSource source) {
+        this.source = source;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public InputStream getInputStream() throws IOException {
+        return source.getInputStream();
+    }
+
+}
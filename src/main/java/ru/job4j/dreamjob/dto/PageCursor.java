@@ -0,0 +1,75 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Позиция в списке, упорядоченном по (creation_date, id) по убыванию: дата создания и id
+ * граничной записи. В ссылках передаётся строкой вида 2023-03-21T10:15:30_42.
+ */
+public class PageCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime creationDate;
+
+    private final int id;
+
+    public PageCursor(LocalDateTime creationDate, int id) {
+        this.creationDate = creationDate;
+        this.id = id;
+    }
+
+    /**
+     * @return пустой Optional, если строка не является курсором
+     */
+    public static Optional<PageCursor> parse(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        int separator = value.lastIndexOf(SEPARATOR);
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        try {
+            LocalDateTime creationDate = LocalDateTime.parse(value.substring(0, separator));
+            int id = Integer.parseInt(value.substring(separator + 1));
+            return Optional.of(new PageCursor(creationDate, id));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PageCursor that = (PageCursor) o;
+        return id == that.id && Objects.equals(creationDate, that.creationDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(creationDate, id);
+    }
+
+    @Override
+    public String toString() {
+        return creationDate + SEPARATOR + id;
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка при постраничном выводе по ключу. Курсоры previous и next указывают на первую
+ * и последнюю запись страницы и равны null, если в эту сторону записей больше нет.
+ */
+public class PageDto<T> {
+
+    private final List<T> items;
+
+    private final PageCursor previous;
+
+    private final PageCursor next;
+
+    public PageDto(List<T> items, PageCursor previous, PageCursor next) {
+        this.items = items;
+        this.previous = previous;
+        this.next = next;
+    }
+
+    /**
+     * Страница из записей, идущих после курсора: rows - до size + 1 записей, лишняя говорит о том,
+     * что есть следующая страница. Без курсора это первая страница, и предыдущей у неё нет.
+     */
+    public static <T> PageDto<T> ofNext(List<T> rows, int size, boolean isFirst,
+                                        Function<T, PageCursor> cursor) {
+        boolean hasNext = rows.size() > size;
+        List<T> items = hasNext ? rows.subList(0, size) : rows;
+        if (items.isEmpty()) {
+            return new PageDto<>(items, null, null);
+        }
+        PageCursor previous = isFirst ? null : cursor.apply(items.get(0));
+        PageCursor next = hasNext ? cursor.apply(items.get(items.size() - 1)) : null;
+        return new PageDto<>(List.copyOf(items), previous, next);
+    }
+
+    /**
+     * Страница из записей, идущих перед курсором: rows - до size + 1 ближайших к курсору записей
+     * в порядке возрастания, лишняя говорит о том, что есть и более ранняя страница.
+     */
+    public static <T> PageDto<T> ofPrevious(List<T> rows, int size, Function<T, PageCursor> cursor) {
+        boolean hasPrevious = rows.size() > size;
+        List<T> items = new ArrayList<>(hasPrevious ? rows.subList(0, size) : rows);
+        Collections.reverse(items);
+        if (items.isEmpty()) {
+            return new PageDto<>(items, null, null);
+        }
+        PageCursor previous = hasPrevious ? cursor.apply(items.get(0)) : null;
+        PageCursor next = cursor.apply(items.get(items.size() - 1));
+        return new PageDto<>(List.copyOf(items), previous, next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public PageCursor getPrevious() {
+        return previous;
+    }
+
+    public PageCursor getNext() {
+        return next;
+    }
+
+    public boolean hasPrevious() {
+        return previous != null;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+}
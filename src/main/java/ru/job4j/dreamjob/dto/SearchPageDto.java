@@ -0,0 +1,55 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска. Результаты упорядочены по релевантности, которая не даёт
+ * устойчивого ключа, поэтому страницы нумеруются с нуля, а не задаются курсором.
+ */
+public class SearchPageDto<T> {
+
+    private final List<T> items;
+
+    private final String query;
+
+    private final int number;
+
+    private final boolean hasNext;
+
+    public SearchPageDto(List<T> items, String query, int number, boolean hasNext) {
+        this.items = items;
+        this.query = query;
+        this.number = number;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * rows - до size + 1 записей, лишняя говорит о том, что есть следующая страница.
+     */
+    public static <T> SearchPageDto<T> of(List<T> rows, String query, int number, int size) {
+        boolean hasNext = rows.size() > size;
+        List<T> items = hasNext ? rows.subList(0, size) : rows;
+        return new SearchPageDto<>(List.copyOf(items), query, number, hasNext);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public boolean hasPrevious() {
+        return number > 0;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+}
\ No newline at end of file
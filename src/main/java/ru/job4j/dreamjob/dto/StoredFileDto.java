@@ -0,0 +1,40 @@
+package ru.job4j.dreamjob.dto;
+
+import ru.job4j.dreamjob.model.File;
+
+/**
+ * Содержимое, уже записанное в хранилище, но ещё без записи files.
+ * Если итоговый ключ зависит от содержимого, оно лежит во временном ключе до сохранения записи.
+ */
+public class StoredFileDto {
+
+    private File file;
+
+    private String temporaryKey;
+
+    public StoredFileDto(File file, String temporaryKey) {
+        this.file = file;
+        this.temporaryKey = temporaryKey;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public String getTemporaryKey() {
+        return temporaryKey;
+    }
+
+    public void setTemporaryKey(String temporaryKey) {
+        this.temporaryKey = temporaryKey;
+    }
+
+    public boolean isTemporary() {
+        return temporaryKey != null;
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Условия отбора вакансий. Незаданное (null) условие не ограничивает выборку. Даты from и to
+ * включительные и приходят из параметров запроса в виде 2023-03-21.
+ */
+public class VacancyCriteria {
+
+    private Integer cityId;
+
+    private Boolean visible;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    public VacancyCriteria() {
+    }
+
+    public VacancyCriteria(Integer cityId, Boolean visible, LocalDate from, LocalDate to) {
+        this.cityId = cityId;
+        this.visible = visible;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Начало диапазона дат создания как момент времени, включительно.
+     */
+    public LocalDateTime getCreatedFrom() {
+        return from == null ? null : from.atStartOfDay();
+    }
+
+    /**
+     * Конец диапазона дат создания как момент времени, не включительно: начало следующего дня.
+     */
+    public LocalDateTime getCreatedBefore() {
+        return to == null ? null : to.plusDays(1).atStartOfDay();
+    }
+
+    public Integer getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Integer cityId) {
+        this.cityId = cityId;
+    }
+
+    public Boolean getVisible() {
+        return visible;
+    }
+
+    public void setVisible(Boolean visible) {
+        this.visible = visible;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+}
\ No newline at end of file
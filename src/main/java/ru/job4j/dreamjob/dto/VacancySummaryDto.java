@@ -0,0 +1,71 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка вакансий: только выводимые в списке столбцы, без описания.
+ */
+public class VacancySummaryDto {
+
+    private int id;
+
+    private String title;
+
+    private LocalDateTime creationDate;
+
+    private boolean visible;
+
+    private int fileId;
+
+    public VacancySummaryDto() {
+    }
+
+    public VacancySummaryDto(int id, String title, LocalDateTime creationDate, boolean visible, int fileId) {
+        this.id = id;
+        this.title = title;
+        this.creationDate = creationDate;
+        this.visible = visible;
+        this.fileId = fileId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public boolean getVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(int fileId) {
+        this.fileId = fileId;
+    }
+
+}
@@ -0,0 +1,79 @@
+package ru.job4j.dreamjob.filter;
+
+import java.io.IOException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.repository.Sql2oUnitOfWork;
+
+/**
+ * Хранит в cookie момент, до которого клиент после своей записи читает с основной БД.
+ * Cookie приходит на любую ноду, поэтому клиент видит свои изменения, даже если
+ * следующий запрос обработает другая нода, а остальные клиенты продолжают читать с реплики.
+ */
+@Component
+@Order(3)
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaFreshnessFilter extends HttpFilter {
+
+    public static final String COOKIE_NAME = "primary-until";
+
+    private final Sql2oUnitOfWork unitOfWork;
+    private final int maxAgeSeconds;
+
+    public ReplicaFreshnessFilter(Sql2oUnitOfWork unitOfWork,
+                                  @Value("${datasource.replica.freshness}") long freshness) {
+        this.unitOfWork = unitOfWork;
+        this.maxAgeSeconds = (int) Math.ceil(freshness / 1000.0);
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response,
+                            FilterChain chain) throws IOException, ServletException {
+        unitOfWork.beginRequest(primaryUntil(request), until -> addCookie(request, response, until));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            unitOfWork.endRequest();
+        }
+    }
+
+    private long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * После начала отправки ответа заголовки уже не добавить, и такая запись в cookie не попадёт.
+     */
+    private void addCookie(HttpServletRequest request, HttpServletResponse response, long until) {
+        if (response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge(maxAgeSeconds);
+        response.addCookie(cookie);
+    }
+
+}
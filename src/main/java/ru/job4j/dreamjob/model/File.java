@@ -7,12 +7,21 @@ public class File {
     private int id;
     private String name;
     private String path;
+    private long size;
+    private String hash;
 
     public File(String name, String path) {
         this.name = name;
         this.path = path;
     }
 
+    public File(String name, String path, long size, String hash) {
+        this.name = name;
+        this.path = path;
+        this.size = size;
+        this.hash = hash;
+    }
+
     public int getId() {
         return id;
     }
@@ -37,6 +46,22 @@ public class File {
         this.path = path;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
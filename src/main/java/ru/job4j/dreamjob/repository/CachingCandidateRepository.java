@@ -0,0 +1,116 @@
+package ru.job4j.dreamjob.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.model.Candidate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Кэширует findById поверх репозитория в БД. Списки и поиск идут мимо кэша.
+ * Записи, изменённые на других нодах, сбрасываются по сообщениям invalidationBus.
+ */
+@ThreadSafe
+@Primary
+@Repository
+@ConditionalOnProperty(name = "repository.cache.enabled", havingValue = "true")
+public class CachingCandidateRepository implements CandidateRepository, MeterBinder {
+
+    private final CandidateRepository candidateRepository;
+    private final EntityCache<Candidate> cache;
+
+    public CachingCandidateRepository(CandidateRepository sql2oCandidateRepository,
+                                      UnitOfWork unitOfWork,
+                                      InvalidationBus invalidationBus,
+                                      @Value("${repository.cache.max-size}") int maxSize,
+                                      @Value("${repository.cache.ttl}") long ttl) {
+        this.candidateRepository = sql2oCandidateRepository;
+        this.cache = new EntityCache<>(Sql2oCandidateRepository.ENTITY, maxSize, ttl,
+                CachingCandidateRepository::copy, unitOfWork);
+        invalidationBus.subscribe(cache);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
+    }
+
+    @Override
+    public Candidate save(Candidate candidate) {
+        Candidate saved = candidateRepository.save(candidate);
+        cache.invalidate(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        boolean deleted = candidateRepository.deleteById(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        Optional<Integer> fileId = candidateRepository.deleteByIdReturningFileId(id);
+        cache.invalidate(id);
+        return fileId;
+    }
+
+    @Override
+    public boolean update(Candidate candidate) {
+        boolean updated = candidateRepository.update(candidate);
+        cache.invalidate(candidate.getId());
+        return updated;
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Candidate candidate) {
+        Optional<Integer> previousFileId = candidateRepository.updateReturningPreviousFileId(candidate);
+        cache.invalidate(candidate.getId());
+        return previousFileId;
+    }
+
+    @Override
+    public Optional<Candidate> findById(int id) {
+        return cache.get(id, candidateRepository::findById);
+    }
+
+    @Override
+    public Collection<Candidate> findAll() {
+        return candidateRepository.findAll();
+    }
+
+    @Override
+    public List<CandidateSummaryDto> findPageAfter(PageCursor cursor, CandidateCriteria criteria,
+                                                   int limit) {
+        return candidateRepository.findPageAfter(cursor, criteria, limit);
+    }
+
+    @Override
+    public List<CandidateSummaryDto> findPageBefore(PageCursor cursor, CandidateCriteria criteria,
+                                                    int limit) {
+        return candidateRepository.findPageBefore(cursor, criteria, limit);
+    }
+
+    @Override
+    public List<CandidateSummaryDto> search(String query, int offset, int limit) {
+        return candidateRepository.search(query, offset, limit);
+    }
+
+    private static Candidate copy(Candidate candidate) {
+        return new Candidate(candidate.getId(), candidate.getName(), candidate.getDescription(),
+                candidate.getCreationDate(), candidate.getCityId(), candidate.getFileId());
+    }
+
+}
@@ -0,0 +1,114 @@
+package ru.job4j.dreamjob.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Кэширует findById поверх репозитория в БД. Списки и поиск идут мимо кэша.
+ * Записи, изменённые на других нодах, сбрасываются по сообщениям invalidationBus.
+ */
+@ThreadSafe
+@Primary
+@Repository
+@ConditionalOnProperty(name = "repository.cache.enabled", havingValue = "true")
+public class CachingVacancyRepository implements VacancyRepository, MeterBinder {
+
+    private final VacancyRepository vacancyRepository;
+    private final EntityCache<Vacancy> cache;
+
+    public CachingVacancyRepository(VacancyRepository sql2oVacancyRepository,
+                                    UnitOfWork unitOfWork,
+                                    InvalidationBus invalidationBus,
+                                    @Value("${repository.cache.max-size}") int maxSize,
+                                    @Value("${repository.cache.ttl}") long ttl) {
+        this.vacancyRepository = sql2oVacancyRepository;
+        this.cache = new EntityCache<>(Sql2oVacancyRepository.ENTITY, maxSize, ttl,
+                CachingVacancyRepository::copy, unitOfWork);
+        invalidationBus.subscribe(cache);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
+    }
+
+    @Override
+    public Vacancy save(Vacancy vacancy) {
+        Vacancy saved = vacancyRepository.save(vacancy);
+        cache.invalidate(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        boolean deleted = vacancyRepository.deleteById(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        Optional<Integer> fileId = vacancyRepository.deleteByIdReturningFileId(id);
+        cache.invalidate(id);
+        return fileId;
+    }
+
+    @Override
+    public boolean update(Vacancy vacancy) {
+        boolean updated = vacancyRepository.update(vacancy);
+        cache.invalidate(vacancy.getId());
+        return updated;
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Vacancy vacancy) {
+        Optional<Integer> previousFileId = vacancyRepository.updateReturningPreviousFileId(vacancy);
+        cache.invalidate(vacancy.getId());
+        return previousFileId;
+    }
+
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        return cache.get(id, vacancyRepository::findById);
+    }
+
+    @Override
+    public Collection<Vacancy> findAll() {
+        return vacancyRepository.findAll();
+    }
+
+    @Override
+    public List<VacancySummaryDto> findPageAfter(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return vacancyRepository.findPageAfter(cursor, criteria, limit);
+    }
+
+    @Override
+    public List<VacancySummaryDto> findPageBefore(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return vacancyRepository.findPageBefore(cursor, criteria, limit);
+    }
+
+    @Override
+    public List<VacancySummaryDto> search(String query, int offset, int limit) {
+        return vacancyRepository.search(query, offset, limit);
+    }
+
+    private static Vacancy copy(Vacancy vacancy) {
+        return new Vacancy(vacancy.getId(), vacancy.getTitle(), vacancy.getDescription(),
+                vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(), vacancy.getFileId());
+    }
+
+}
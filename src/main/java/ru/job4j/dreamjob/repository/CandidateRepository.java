@@ -1,8 +1,12 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CandidateRepository {
@@ -11,10 +15,41 @@ public interface CandidateRepository {
 
     boolean deleteById(int id);
 
+    /**
+     * Удаляет запись одним запросом.
+     *
+     * @return file_id удалённой записи, пусто - если записи не было
+     */
+    Optional<Integer> deleteByIdReturningFileId(int id);
+
     boolean update(Candidate candidate);
 
+    /**
+     * Обновляет запись одним запросом.
+     *
+     * @return file_id, на который запись ссылалась до обновления, пусто - если записи не было
+     */
+    Optional<Integer> updateReturningPreviousFileId(Candidate candidate);
+
     Optional<Candidate> findById(int id);
 
     Collection<Candidate> findAll();
 
+    /**
+     * Записи, подходящие под criteria и идущие в списке после курсора, в порядке (creation_date, id)
+     * по убыванию.
+     * Без курсора - самые новые записи.
+     */
+    List<CandidateSummaryDto> findPageAfter(PageCursor cursor, CandidateCriteria criteria, int limit);
+
+    /**
+     * Записи, идущие в списке перед курсором, начиная с ближайшей к нему, то есть по возрастанию.
+     */
+    List<CandidateSummaryDto> findPageBefore(PageCursor cursor, CandidateCriteria criteria, int limit);
+
+    /**
+     * Поиск по имени и описанию: до limit записей, начиная с offset, по убыванию релевантности.
+     */
+    List<CandidateSummaryDto> search(String query, int offset, int limit);
+
 }
\ No newline at end of file
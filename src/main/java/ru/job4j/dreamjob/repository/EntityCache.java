@@ -0,0 +1,89 @@
+package ru.job4j.dreamjob.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.jcip.annotations.ThreadSafe;
+import ru.job4j.dreamjob.cache.InvalidationListener;
+import ru.job4j.dreamjob.cache.LruCache;
+import ru.job4j.dreamjob.cache.LruCacheMetrics;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Кэш записей по первичному ключу с ограничением числа записей и временем жизни.
+ * Наружу отдаются копии, чтобы изменение полученного объекта не портило кэш.
+ * Внутри транзакции кэш не используется: там видны ещё не зафиксированные изменения.
+ * Промах кэша читается с основной БД: после сброса записи реплика может ещё отдавать старую версию,
+ * и она осталась бы в кэше на весь ttl.
+ * Имя кэша совпадает с именем записей в сообщениях {@link ru.job4j.dreamjob.cache.InvalidationBus}.
+ */
+@ThreadSafe
+final class EntityCache<T> implements MeterBinder, InvalidationListener {
+
+    private final String name;
+    private final long ttlNanos;
+    private final UnaryOperator<T> copier;
+    private final UnitOfWork unitOfWork;
+    private final LruCache<Integer, Entry<T>> cache;
+
+    EntityCache(String name, int maxSize, long ttlMillis, UnaryOperator<T> copier, UnitOfWork unitOfWork) {
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.copier = copier;
+        this.unitOfWork = unitOfWork;
+        this.cache = new LruCache<>(maxSize, entry -> 1);
+    }
+
+    Optional<T> get(int id, IntFunction<Optional<T>> loader) {
+        if (unitOfWork.isInTransaction()) {
+            return loader.apply(id);
+        }
+        Entry<T> cached = cache.getIfPresent(id);
+        if (cached != null && cached.isExpired()) {
+            cache.invalidate(id);
+        }
+        Entry<T> entry = cache.get(id, key -> unitOfWork.onPrimary(() -> loader.apply(key))
+                .map(value -> new Entry<>(value, System.nanoTime() + ttlNanos))
+                .orElse(null));
+        return Optional.ofNullable(entry).map(Entry::value).map(copier);
+    }
+
+    /**
+     * Запись сбрасывается сразу и ещё раз после коммита, иначе параллельное чтение
+     * успеет положить в кэш старую версию до фиксации транзакции.
+     */
+    void invalidate(int id) {
+        cache.invalidate(id);
+        unitOfWork.afterCommit(() -> cache.invalidate(id));
+    }
+
+    @Override
+    public void invalidate(String entity, int id) {
+        if (name.equals(entity)) {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new LruCacheMetrics(cache, name, Tags.empty()).bindTo(registry);
+    }
+
+    private record Entry<T>(T value, long expiresAt) {
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+    }
+
+}
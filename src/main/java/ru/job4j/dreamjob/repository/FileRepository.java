@@ -2,7 +2,11 @@ package ru.job4j.dreamjob.repository;
 
 import ru.job4j.dreamjob.model.File;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public interface FileRepository {
 
@@ -12,4 +16,26 @@ public interface FileRepository {
 
     boolean deleteById(int id);
 
+    int countByPath(String path);
+
+    /**
+     * Те из переданных путей, что встречаются в files.path. Один запрос на всю пачку.
+     */
+    Set<String> findExistingPaths(Collection<String> paths);
+
+    List<File> findAllAfterId(int id, int limit);
+
+    int updatePath(String oldPath, String newPath);
+
+    /**
+     * Записи files с id больше заданного, на которые не ссылаются ни вакансии, ни кандидаты.
+     */
+    List<File> findUnreferencedAfterId(int id, int limit);
+
+    /**
+     * Выполняет work в транзакции и до её конца держит блокировку файла с данным именем,
+     * чтобы сохранение и удаление одного содержимого на разных нодах не пересекались.
+     */
+    <T> T inFileLock(String fileName, Supplier<T> work);
+
 }
\ No newline at end of file
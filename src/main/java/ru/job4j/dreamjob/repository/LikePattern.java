@@ -0,0 +1,27 @@
+package ru.job4j.dreamjob.repository;
+
+import java.util.Locale;
+
+/**
+ * Шаблон LIKE для поиска подстроки без учёта регистра. Символы шаблона в самом тексте
+ * экранируются знаком {@link #ESCAPE}, который запрос должен указать в ESCAPE.
+ */
+final class LikePattern {
+
+    static final char ESCAPE = '!';
+
+    private LikePattern() {
+    }
+
+    static String contains(String text) {
+        StringBuilder pattern = new StringBuilder("%");
+        for (char symbol : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (symbol == ESCAPE || symbol == '%' || symbol == '_') {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(symbol);
+        }
+        return pattern.append('%').toString();
+    }
+
+}
\ No newline at end of file
@@ -3,22 +3,39 @@ package ru.job4j.dreamjob.repository;
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.search.InvertedIndex;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 @ThreadSafe
 @Repository
 public class MemoryCandidateRepository implements CandidateRepository {
 
+    private static final Comparator<Candidate> LIST_ORDER = Comparator.comparing(Candidate::getCreationDate)
+            .thenComparingInt(Candidate::getId);
+
     private final AtomicInteger nextId = new AtomicInteger(1);
     @GuardedBy("this")
     private final Map<Integer, Candidate> candidates = new ConcurrentHashMap<>();
+    /**
+     * Поля документа - имя и описание, слово в первом весит вдвое больше.
+     */
+    private final InvertedIndex index = new InvertedIndex(2, 1);
 
     public MemoryCandidateRepository() {
         LocalDateTime dateTime = LocalDateTime.of(2023, 3, 21, 12, 0);
@@ -31,20 +48,39 @@ public class MemoryCandidateRepository implements CandidateRepository {
     public Candidate save(Candidate candidate) {
         candidate.setId(nextId.getAndIncrement());
         candidates.put(candidate.getId(), candidate);
+        index.put(candidate.getId(), candidate.getName(), candidate.getDescription());
         return candidate;
     }
 
     @Override
     public boolean deleteById(int id) {
-        return candidates.remove(id) != null;
+        return deleteByIdReturningFileId(id).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        Candidate deleted = candidates.remove(id);
+        index.remove(id);
+        return Optional.ofNullable(deleted).map(Candidate::getFileId);
     }
 
     @Override
     public boolean update(Candidate candidate) {
-        return candidates.computeIfPresent(candidate.getId(), (id, oldCandidate) ->
-                new Candidate(oldCandidate.getId(), candidate.getName(), candidate.getDescription(),
-                        candidate.getCreationDate(), candidate.getCityId(), candidate.getFileId())
-        ) != null;
+        return updateReturningPreviousFileId(candidate).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Candidate candidate) {
+        AtomicReference<Integer> previousFileId = new AtomicReference<>();
+        candidates.computeIfPresent(candidate.getId(), (id, oldCandidate) -> {
+            previousFileId.set(oldCandidate.getFileId());
+            Candidate updated = new Candidate(oldCandidate.getId(), candidate.getName(),
+                    candidate.getDescription(), candidate.getCreationDate(), candidate.getCityId(),
+                    candidate.getFileId());
+            index.put(id, updated.getName(), updated.getDescription());
+            return updated;
+        });
+        return Optional.ofNullable(previousFileId.get());
     }
 
     @Override
@@ -57,4 +93,66 @@ public class MemoryCandidateRepository implements CandidateRepository {
         return candidates.values();
     }
 
+    @Override
+    public List<CandidateSummaryDto> findPageAfter(PageCursor cursor, CandidateCriteria criteria, int limit) {
+        return candidates.values().stream()
+                .filter(toPredicate(criteria))
+                .filter(item -> cursor == null || compareToCursor(item, cursor) < 0)
+                .sorted(LIST_ORDER.reversed())
+                .limit(limit)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    @Override
+    public List<CandidateSummaryDto> findPageBefore(PageCursor cursor, CandidateCriteria criteria,
+                                                    int limit) {
+        return candidates.values().stream()
+                .filter(toPredicate(criteria))
+                .filter(item -> compareToCursor(item, cursor) > 0)
+                .sorted(LIST_ORDER)
+                .limit(limit)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    /**
+     * Ранжированный поиск по инвертированному индексу, без просмотра всех записей.
+     */
+    @Override
+    public List<CandidateSummaryDto> search(String query, int offset, int limit) {
+        return Arrays.stream(index.search(query, offset + limit))
+                .skip(offset)
+                .mapToObj(candidates::get)
+                .filter(Objects::nonNull)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    private Predicate<Candidate> toPredicate(CandidateCriteria criteria) {
+        Predicate<Candidate> predicate = item -> true;
+        if (criteria.getCityId() != null) {
+            predicate = predicate.and(item -> item.getCityId() == criteria.getCityId());
+        }
+        LocalDateTime createdFrom = criteria.getCreatedFrom();
+        if (createdFrom != null) {
+            predicate = predicate.and(item -> !item.getCreationDate().isBefore(createdFrom));
+        }
+        LocalDateTime createdBefore = criteria.getCreatedBefore();
+        if (createdBefore != null) {
+            predicate = predicate.and(item -> item.getCreationDate().isBefore(createdBefore));
+        }
+        return predicate;
+    }
+
+    private int compareToCursor(Candidate item, PageCursor cursor) {
+        int byDate = item.getCreationDate().compareTo(cursor.getCreationDate());
+        return byDate != 0 ? byDate : Integer.compare(item.getId(), cursor.getId());
+    }
+
+    private CandidateSummaryDto toSummary(Candidate item) {
+        return new CandidateSummaryDto(item.getId(), item.getName(), item.getCreationDate(),
+                item.getFileId());
+    }
+
 }
\ No newline at end of file
@@ -3,10 +3,16 @@ package ru.job4j.dreamjob.repository;
 import org.springframework.stereotype.Repository;
 import ru.job4j.dreamjob.model.File;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Repository
 public class MemoryFileRepository implements FileRepository {
@@ -30,4 +36,57 @@ public class MemoryFileRepository implements FileRepository {
     public boolean deleteById(int id) {
         return files.remove(id) != null;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int countByPath(String path) {
+        return (int) files.values().stream()
+                .filter(file -> file.getPath().equals(path))
+                .count();
+    }
+
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) {
+        return files.values().stream()
+                .map(File::getPath)
+                .filter(paths::contains)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<File> findAllAfterId(int id, int limit) {
+        return files.values().stream()
+                .filter(file -> file.getId() > id)
+                .sorted(Comparator.comparingInt(File::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public int updatePath(String oldPath, String newPath) {
+        int updated = 0;
+        for (File file : files.values()) {
+            if (file.getPath().equals(oldPath)) {
+                file.setPath(newPath);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Хранилище в памяти не знает о вакансиях и кандидатах, поэтому не считает сиротой ни одну запись.
+     */
+    @Override
+    public List<File> findUnreferencedAfterId(int id, int limit) {
+        return List.of();
+    }
+
+    /**
+     * Записи в памяти видны только этой JVM, поэтому хватает блокировки в SimpleFileService.
+     */
+    @Override
+    public <T> T inFileLock(String fileName, Supplier<T> work) {
+        return work.get();
+    }
+
+}
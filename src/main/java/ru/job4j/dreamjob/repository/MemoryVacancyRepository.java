@@ -3,22 +3,39 @@ package ru.job4j.dreamjob.repository;
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.search.InvertedIndex;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 @ThreadSafe
 @Repository
 public class MemoryVacancyRepository implements VacancyRepository {
 
+    private static final Comparator<Vacancy> LIST_ORDER = Comparator.comparing(Vacancy::getCreationDate)
+            .thenComparingInt(Vacancy::getId);
+
     private final AtomicInteger nextId = new AtomicInteger(1);
     @GuardedBy("this")
     private final Map<Integer, Vacancy> vacancies = new ConcurrentHashMap<>();
+    /**
+     * Поля документа - название и описание, слово в первом весит вдвое больше.
+     */
+    private final InvertedIndex index = new InvertedIndex(2, 1);
 
     public MemoryVacancyRepository() {
         LocalDateTime dateTime = LocalDateTime.of(2023, 3, 21, 0, 0);
@@ -34,21 +51,39 @@ public class MemoryVacancyRepository implements VacancyRepository {
     public Vacancy save(Vacancy vacancy) {
         vacancy.setId(nextId.getAndIncrement());
         vacancies.put(vacancy.getId(), vacancy);
+        index.put(vacancy.getId(), vacancy.getTitle(), vacancy.getDescription());
         return vacancy;
     }
 
     @Override
     public boolean deleteById(int id) {
-        return vacancies.remove(id) != null;
+        return deleteByIdReturningFileId(id).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        Vacancy deleted = vacancies.remove(id);
+        index.remove(id);
+        return Optional.ofNullable(deleted).map(Vacancy::getFileId);
     }
 
     @Override
     public boolean update(Vacancy vacancy) {
-        return vacancies.computeIfPresent(vacancy.getId(), (id, oldVacancy) ->
-                new Vacancy(oldVacancy.getId(), vacancy.getTitle(), vacancy.getDescription(),
-                        vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(),
-                        vacancy.getFileId())
-        ) != null;
+        return updateReturningPreviousFileId(vacancy).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Vacancy vacancy) {
+        AtomicReference<Integer> previousFileId = new AtomicReference<>();
+        vacancies.computeIfPresent(vacancy.getId(), (id, oldVacancy) -> {
+            previousFileId.set(oldVacancy.getFileId());
+            Vacancy updated = new Vacancy(oldVacancy.getId(), vacancy.getTitle(), vacancy.getDescription(),
+                    vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(),
+                    vacancy.getFileId());
+            index.put(id, updated.getTitle(), updated.getDescription());
+            return updated;
+        });
+        return Optional.ofNullable(previousFileId.get());
     }
 
     @Override
@@ -61,4 +96,68 @@ public class MemoryVacancyRepository implements VacancyRepository {
         return vacancies.values();
     }
 
+    @Override
+    public List<VacancySummaryDto> findPageAfter(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return vacancies.values().stream()
+                .filter(toPredicate(criteria))
+                .filter(item -> cursor == null || compareToCursor(item, cursor) < 0)
+                .sorted(LIST_ORDER.reversed())
+                .limit(limit)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    @Override
+    public List<VacancySummaryDto> findPageBefore(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return vacancies.values().stream()
+                .filter(toPredicate(criteria))
+                .filter(item -> compareToCursor(item, cursor) > 0)
+                .sorted(LIST_ORDER)
+                .limit(limit)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    /**
+     * Ранжированный поиск по инвертированному индексу, без просмотра всех записей.
+     */
+    @Override
+    public List<VacancySummaryDto> search(String query, int offset, int limit) {
+        return Arrays.stream(index.search(query, offset + limit))
+                .skip(offset)
+                .mapToObj(vacancies::get)
+                .filter(Objects::nonNull)
+                .map(this::toSummary)
+                .toList();
+    }
+
+    private Predicate<Vacancy> toPredicate(VacancyCriteria criteria) {
+        Predicate<Vacancy> predicate = item -> true;
+        if (criteria.getCityId() != null) {
+            predicate = predicate.and(item -> item.getCityId() == criteria.getCityId());
+        }
+        if (criteria.getVisible() != null) {
+            predicate = predicate.and(item -> item.getVisible() == criteria.getVisible());
+        }
+        LocalDateTime createdFrom = criteria.getCreatedFrom();
+        if (createdFrom != null) {
+            predicate = predicate.and(item -> !item.getCreationDate().isBefore(createdFrom));
+        }
+        LocalDateTime createdBefore = criteria.getCreatedBefore();
+        if (createdBefore != null) {
+            predicate = predicate.and(item -> item.getCreationDate().isBefore(createdBefore));
+        }
+        return predicate;
+    }
+
+    private int compareToCursor(Vacancy item, PageCursor cursor) {
+        int byDate = item.getCreationDate().compareTo(cursor.getCreationDate());
+        return byDate != 0 ? byDate : Integer.compare(item.getId(), cursor.getId());
+    }
+
+    private VacancySummaryDto toSummary(Vacancy item) {
+        return new VacancySummaryDto(item.getId(), item.getTitle(), item.getCreationDate(),
+                item.getVisible(), item.getFileId());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package ru.job4j.dreamjob.repository;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.cache.InvalidationListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+/**
+ * Шина на PostgreSQL LISTEN/NOTIFY. Сообщение отправляется pg_notify на соединении текущей
+ * транзакции, поэтому PostgreSQL доставит его только после коммита и не доставит при откате.
+ * Sql2o-репозитории пишут и публикуют в одной транзакции, см. Sql2oVacancyRepository.
+ * Каждая нода слушает канал на отдельном соединении вне пула. NOTIFY не хранит сообщения
+ * для ещё не подписавшихся и отключившихся слушателей, поэтому кэши сбрасываются целиком
+ * при каждой успешной подписке: и первой, и после переподключения. Иначе записи, попавшие
+ * в кэш до подписки, жили бы со старыми данными до истечения ttl.
+ * Включается свойством repository.cache.invalidation=postgres, по умолчанию шина локальная.
+ */
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "repository.cache.invalidation", havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus, ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostgresInvalidationBus.class.getName());
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final int POLL_TIMEOUT_MILLIS = 10000;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final Sql2oUnitOfWork unitOfWork;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+    private final long reconnectDelay;
+    private final InProcessInvalidationBus listeners = new InProcessInvalidationBus();
+
+    private volatile boolean running;
+
+    private volatile Thread listenerThread;
+
+    private volatile Connection listenerConnection;
+
+    private volatile boolean listening;
+
+    public PostgresInvalidationBus(Sql2oUnitOfWork unitOfWork,
+                                   @Value("${datasource.url}") String url,
+                                   @Value("${datasource.username}") String username,
+                                   @Value("${datasource.password}") String password,
+                                   @Value("${repository.cache.channel}") String channel,
+                                   @Value("${repository.cache.reconnect-delay}") long reconnectDelay) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.unitOfWork = unitOfWork;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void publish(String entity, int id) {
+        unitOfWork.withConnection(connection -> connection.createQuery("SELECT pg_notify(:channel, :payload)")
+                .addParameter("channel", channel)
+                .addParameter("payload", entity + ":" + id)
+                .executeAndFetchTable());
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.subscribe(listener);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        start();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::listen, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        listenerThread = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        Thread thread = listenerThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        closeQuietly(listenerConnection);
+    }
+
+    /**
+     * Подписана ли нода на канал прямо сейчас.
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                listenerConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                listeners.publishAll();
+                listening = true;
+                LOG.info(reconnect ? "Подписка на канал {} восстановлена, кэши сброшены"
+                        : "Подписка на канал {} установлена, кэши сброшены", channel);
+                reconnect = true;
+                receive(connection.unwrap(PGConnection.class), connection);
+            } catch (SQLException e) {
+                if (running) {
+                    LOG.warn("Потеряно соединение с каналом {}, повтор через {} мс",
+                            channel, reconnectDelay, e);
+                    pause();
+                }
+            } finally {
+                listening = false;
+                listenerConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Без сообщений соединение проверяется явно: полуоткрытое TCP-соединение само ошибку не вернёт.
+     */
+    private void receive(PGConnection pgConnection, Connection connection) throws SQLException {
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                dispatch(notification.getParameter());
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        int separator = payload.lastIndexOf(':');
+        try {
+            int id = Integer.parseInt(payload.substring(separator + 1));
+            listeners.publish(payload.substring(0, separator), id);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            LOG.warn("Неизвестное сообщение в канале {}: {}", channel, payload);
+            listeners.publishAll();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(reconnectDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.debug("Ошибка при закрытии соединения слушателя", e);
+        }
+    }
+
+}
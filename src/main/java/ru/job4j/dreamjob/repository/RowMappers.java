@@ -0,0 +1,86 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.ResultSetHandler;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Разбор строк без рефлексии: столбцы читаются по номеру, поэтому запрос обязан перечислять
+ * их ровно в порядке соответствующей константы *_COLUMNS.
+ */
+final class RowMappers {
+
+    static final String VACANCY_COLUMNS = "id, title, description, creation_date, visible, city_id, file_id";
+
+    static final String VACANCY_SUMMARY_COLUMNS = "id, title, creation_date, visible, file_id";
+
+    static final String CANDIDATE_COLUMNS = "id, name, description, creation_date, city_id, file_id";
+
+    static final String CANDIDATE_SUMMARY_COLUMNS = "id, name, creation_date, file_id";
+
+    static final String CITY_COLUMNS = "id, name";
+
+    static final String FILE_COLUMNS = "id, name, path, size, hash";
+
+    static final String USER_COLUMNS = "id, email, name, password";
+
+    static final ResultSetHandler<Vacancy> VACANCY = resultSet -> new Vacancy(
+            resultSet.getInt(1),
+            resultSet.getString(2),
+            resultSet.getString(3),
+            toLocalDateTime(resultSet.getTimestamp(4)),
+            resultSet.getBoolean(5),
+            resultSet.getInt(6),
+            resultSet.getInt(7));
+
+    static final ResultSetHandler<VacancySummaryDto> VACANCY_SUMMARY = resultSet -> new VacancySummaryDto(
+            resultSet.getInt(1),
+            resultSet.getString(2),
+            toLocalDateTime(resultSet.getTimestamp(3)),
+            resultSet.getBoolean(4),
+            resultSet.getInt(5));
+
+    static final ResultSetHandler<Candidate> CANDIDATE = resultSet -> new Candidate(
+            resultSet.getInt(1),
+            resultSet.getString(2),
+            resultSet.getString(3),
+            toLocalDateTime(resultSet.getTimestamp(4)),
+            resultSet.getInt(5),
+            resultSet.getInt(6));
+
+    static final ResultSetHandler<CandidateSummaryDto> CANDIDATE_SUMMARY = resultSet ->
+            new CandidateSummaryDto(resultSet.getInt(1), resultSet.getString(2),
+                    toLocalDateTime(resultSet.getTimestamp(3)), resultSet.getInt(4));
+
+    static final ResultSetHandler<City> CITY = resultSet ->
+            new City(resultSet.getInt(1), resultSet.getString(2));
+
+    static final ResultSetHandler<File> FILE = resultSet -> {
+        File file = new File(resultSet.getString(2), resultSet.getString(3),
+                resultSet.getLong(4), resultSet.getString(5));
+        file.setId(resultSet.getInt(1));
+        return file;
+    };
+
+    static final ResultSetHandler<User> USER = resultSet -> new User(
+            resultSet.getInt(1),
+            resultSet.getString(2),
+            resultSet.getString(3),
+            resultSet.getString(4));
+
+    private RowMappers() {
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+}
@@ -3,24 +3,100 @@ package ru.job4j.dreamjob.repository;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Connection;
 import org.sql2o.Query;
-import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Repository
 public class Sql2oCandidateRepository implements CandidateRepository {
 
-    private final Sql2o sql2o;
+    /**
+     * Имя записей в сообщениях шины, совпадает с именем таблицы.
+     */
+    public static final String ENTITY = "candidates";
 
-    public Sql2oCandidateRepository(Sql2o sql2o) {
-        this.sql2o = sql2o;
+    static final String FIND_BY_ID =
+            "SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates WHERE id = :id";
+
+    static final String NEWEST_FIRST = "ORDER BY creation_date DESC, id DESC";
+
+    static final String OLDEST_FIRST = "ORDER BY creation_date, id";
+
+    /**
+     * search_vector - генерируемый столбец с GIN-индексом, заголовок в нём весит больше описания.
+     */
+    private static final String FULL_TEXT_SEARCH = """
+            SELECT %s
+            FROM candidates, websearch_to_tsquery('russian', :query) AS q
+            WHERE search_vector @@ q
+            ORDER BY ts_rank(search_vector, q) DESC, creation_date DESC, id DESC
+            LIMIT :limit OFFSET :offset
+            """.formatted(RowMappers.CANDIDATE_SUMMARY_COLUMNS);
+
+    /**
+     * Запасной вариант для СУБД без tsvector: вхождение строки целиком, совпадения в заголовке выше.
+     */
+    private static final String SUBSTRING_SEARCH = """
+            SELECT %s
+            FROM candidates
+            WHERE LOWER(name) LIKE :query ESCAPE '!' OR LOWER(description) LIKE :query ESCAPE '!'
+            ORDER BY CASE WHEN LOWER(name) LIKE :query ESCAPE '!' THEN 0 ELSE 1 END,
+                     creation_date DESC, id DESC
+            LIMIT :limit OFFSET :offset
+            """.formatted(RowMappers.CANDIDATE_SUMMARY_COLUMNS);
+
+    private static final String SET_COLUMNS = """
+            name = :name, description = :description, creation_date = :creationDate,
+            city_id = :cityId, file_id = :fileId""";
+
+    /**
+     * PostgreSQL отдаёт значения удалённой строки через RETURNING, H2 - через таблицу дельты OLD TABLE.
+     */
+    private static final String DELETE_RETURNING_FILE_ID =
+            "DELETE FROM candidates WHERE id = :id RETURNING file_id";
+
+    private static final String DELETE_OLD_TABLE_FILE_ID =
+            "SELECT file_id FROM OLD TABLE (DELETE FROM candidates WHERE id = :id)";
+
+    /**
+     * RETURNING в PostgreSQL видит только новые значения, поэтому старый file_id берётся из подзапроса,
+     * который блокирует строку до конца оператора.
+     */
+    private static final String UPDATE_RETURNING_PREVIOUS_FILE_ID = """
+            UPDATE candidates AS c
+            SET %s
+            FROM (SELECT id, file_id FROM candidates WHERE id = :id FOR UPDATE) AS previous
+            WHERE c.id = previous.id
+            RETURNING previous.file_id
+            """.formatted(SET_COLUMNS);
+
+    private static final String UPDATE_OLD_TABLE_FILE_ID = """
+            SELECT file_id FROM OLD TABLE (UPDATE candidates SET %s WHERE id = :id)
+            """.formatted(SET_COLUMNS);
+
+    private final Sql2oUnitOfWork unitOfWork;
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Об изменении и удалении сообщается всем нодам через invalidationBus. Новые записи
+     * ещё не могут лежать ни в одном кэше, поэтому о них не сообщается.
+     */
+    public Sql2oCandidateRepository(Sql2oUnitOfWork unitOfWork, InvalidationBus invalidationBus) {
+        this.unitOfWork = unitOfWork;
+        this.invalidationBus = invalidationBus;
     }
 
     @Override
     public Candidate save(Candidate candidate) {
-        try (Connection connection = sql2o.open()) {
+        return unitOfWork.withConnection(connection -> {
             String sql = """
                     INSERT INTO candidates(name, description, creation_date, city_id, file_id)
                     VALUES (:name, :description, :creationDate, :cityId, :fileId)
@@ -34,57 +110,153 @@ public class Sql2oCandidateRepository implements CandidateRepository {
             int generatedId = query.executeUpdate().getKey(Integer.class);
             candidate.setId(generatedId);
             return candidate;
-        }
+        });
     }
 
     @Override
     public boolean deleteById(int id) {
-        try (Connection connection = sql2o.open()) {
+        return writeAndPublish(id, connection -> {
             Query query = connection.createQuery("DELETE FROM candidates WHERE id = :id");
             query.addParameter("id", id);
             int affectedRows = query.executeUpdate().getResult();
             return affectedRows > 0;
-        }
+        }, Boolean::booleanValue);
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        String sql = unitOfWork.getDialect() == SqlDialect.POSTGRESQL
+                ? DELETE_RETURNING_FILE_ID : DELETE_OLD_TABLE_FILE_ID;
+        return writeAndPublish(id, connection -> {
+            Query query = connection.createQuery(sql).addParameter("id", id);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }, Optional::isPresent);
     }
 
     @Override
     public boolean update(Candidate candidate) {
-        try (Connection connection = sql2o.open()) {
-            String sql = """
-                    UPDATE candidates
-                    SET name = :name, description = :description, creation_date = :creationDate,
-                        city_id = :cityId, file_Id = :fileId
-                    WHERE id = :id;
-                    """;
-            Query query = connection.createQuery(sql)
-                    .addParameter("name", candidate.getName())
-                    .addParameter("description", candidate.getDescription())
-                    .addParameter("creationDate", candidate.getCreationDate())
-                    .addParameter("cityId", candidate.getCityId())
-                    .addParameter("fileId", candidate.getFileId())
-                    .addParameter("id", candidate.getId());
+        return writeAndPublish(candidate.getId(), connection -> {
+            String sql = "UPDATE candidates SET " + SET_COLUMNS + " WHERE id = :id";
+            Query query = bindColumns(connection.createQuery(sql), candidate);
             int affectedRows = query.executeUpdate().getResult();
             return affectedRows > 0;
-        }
+        }, Boolean::booleanValue);
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Candidate candidate) {
+        String sql = unitOfWork.getDialect() == SqlDialect.POSTGRESQL
+                ? UPDATE_RETURNING_PREVIOUS_FILE_ID : UPDATE_OLD_TABLE_FILE_ID;
+        return writeAndPublish(candidate.getId(), connection -> {
+            Query query = bindColumns(connection.createQuery(sql), candidate);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }, Optional::isPresent);
+    }
+
+    /**
+     * Изменение и сообщение о нём идут в одной транзакции на одном соединении: другие ноды
+     * узнают об изменении вместе с его коммитом, а при откате не узнают вовсе.
+     */
+    private <T> T writeAndPublish(int id, Function<Connection, T> write, Predicate<T> isChanged) {
+        return unitOfWork.inTransaction(() -> unitOfWork.withConnection(connection -> {
+            T result = write.apply(connection);
+            if (isChanged.test(result)) {
+                invalidationBus.publish(ENTITY, id);
+            }
+            return result;
+        }));
+    }
+
+    private static Query bindColumns(Query query, Candidate candidate) {
+        return query.addParameter("name", candidate.getName())
+                .addParameter("description", candidate.getDescription())
+                .addParameter("creationDate", candidate.getCreationDate())
+                .addParameter("cityId", candidate.getCityId())
+                .addParameter("fileId", candidate.getFileId())
+                .addParameter("id", candidate.getId());
     }
 
     @Override
     public Optional<Candidate> findById(int id) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM candidates WHERE id = :id");
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = connection.createQuery(FIND_BY_ID);
             query.addParameter("id", id);
-            Candidate candidate = query.setColumnMappings(Candidate.COLUMN_MAPPING)
-                    .executeAndFetchFirst(Candidate.class);
+            Candidate candidate = query.executeAndFetchFirst(RowMappers.CANDIDATE);
             return Optional.ofNullable(candidate);
-        }
+        });
     }
 
     @Override
     public Collection<Candidate> findAll() {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM candidates");
-            return query.setColumnMappings(Candidate.COLUMN_MAPPING).executeAndFetch(Candidate.class);
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = connection.createQuery(
+                    "SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates");
+            return query.executeAndFetch(RowMappers.CANDIDATE);
+        });
+    }
+
+    @Override
+    public List<CandidateSummaryDto> findPageAfter(PageCursor cursor, CandidateCriteria criteria, int limit) {
+        return findPage(pageAfter(cursor, criteria), NEWEST_FIRST, limit);
+    }
+
+    @Override
+    public List<CandidateSummaryDto> findPageBefore(PageCursor cursor, CandidateCriteria criteria,
+                                                    int limit) {
+        return findPage(pageBefore(cursor, criteria), OLDEST_FIRST, limit);
+    }
+
+    private List<CandidateSummaryDto> findPage(SqlCriteria where, String orderBy, int limit) {
+        String sql = pageQuery(where, orderBy);
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = where.bind(connection.createQuery(sql)).addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.CANDIDATE_SUMMARY);
+        });
+    }
+
+    static SqlCriteria pageAfter(PageCursor cursor, CandidateCriteria criteria) {
+        SqlCriteria where = toSqlCriteria(criteria);
+        if (cursor != null) {
+            where.and("(creation_date, id) < (:creationDate, :id)")
+                    .with("creationDate", cursor.getCreationDate())
+                    .with("id", cursor.getId());
         }
+        return where;
+    }
+
+    static SqlCriteria pageBefore(PageCursor cursor, CandidateCriteria criteria) {
+        return toSqlCriteria(criteria)
+                .and("(creation_date, id) > (:creationDate, :id)")
+                .with("creationDate", cursor.getCreationDate())
+                .with("id", cursor.getId());
+    }
+
+    /**
+     * Запрос страницы с параметром limit и параметрами where.
+     */
+    static String pageQuery(SqlCriteria where, String orderBy) {
+        return String.join(System.lineSeparator(),
+                "SELECT " + RowMappers.CANDIDATE_SUMMARY_COLUMNS + " FROM candidates", where.toWhereClause(),
+                orderBy, "LIMIT :limit");
+    }
+
+    private static SqlCriteria toSqlCriteria(CandidateCriteria criteria) {
+        return new SqlCriteria()
+                .andIfPresent("city_id = :cityId", "cityId", criteria.getCityId())
+                .andIfPresent("creation_date >= :createdFrom", "createdFrom", criteria.getCreatedFrom())
+                .andIfPresent("creation_date < :createdBefore", "createdBefore", criteria.getCreatedBefore());
+    }
+
+    @Override
+    public List<CandidateSummaryDto> search(String query, int offset, int limit) {
+        boolean isFullText = unitOfWork.getDialect() == SqlDialect.POSTGRESQL;
+        return unitOfWork.withReadConnection(connection -> {
+            Query sqlQuery = connection.createQuery(isFullText ? FULL_TEXT_SEARCH : SUBSTRING_SEARCH)
+                    .addParameter("query", isFullText ? query : LikePattern.contains(query))
+                    .addParameter("offset", offset)
+                    .addParameter("limit", limit);
+            return sqlQuery.executeAndFetch(RowMappers.CANDIDATE_SUMMARY);
+        });
     }
 
 }
\ No newline at end of file
@@ -1,9 +1,7 @@
 package ru.job4j.dreamjob.repository;
 
 import org.springframework.stereotype.Repository;
-import org.sql2o.Connection;
 import org.sql2o.Query;
-import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.model.City;
 
 import java.util.Collection;
@@ -11,18 +9,18 @@ import java.util.Collection;
 @Repository
 public class Sql2oCityRepository implements CityRepository {
 
-    private final Sql2o sql2o;
+    private final Sql2oUnitOfWork unitOfWork;
 
-    public Sql2oCityRepository(Sql2o sql2o) {
-        this.sql2o = sql2o;
+    public Sql2oCityRepository(Sql2oUnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public Collection<City> findAll() {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM cities");
-            return query.executeAndFetch(City.class);
-        }
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = connection.createQuery("SELECT " + RowMappers.CITY_COLUMNS + " FROM cities");
+            return query.executeAndFetch(RowMappers.CITY);
+        });
     }
 
 }
@@ -1,50 +1,166 @@
 package ru.job4j.dreamjob.repository;
 
 import org.springframework.stereotype.Repository;
-import org.sql2o.Connection;
 import org.sql2o.Query;
-import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.model.File;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Repository
 public class Sql2oFileRepository implements FileRepository {
 
-    private final Sql2o sql2o;
+    /**
+     * Планы этих запросов проверяет QueryPlanTest: уборка и дедупликация гоняют их пачками.
+     */
+    static final String FIND_BY_ID = "SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE id = :id";
 
-    public Sql2oFileRepository(Sql2o sql2o) {
-        this.sql2o = sql2o;
+    static final String COUNT_BY_PATH = "SELECT count(*) FROM files WHERE path = :path";
+
+    static final String FIND_EXISTING_PATHS = "SELECT DISTINCT path FROM files WHERE path IN (:paths)";
+
+    static final String FIND_ALL_AFTER_ID =
+            "SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE id > :id ORDER BY id LIMIT :limit";
+
+    static final String FIND_UNREFERENCED_AFTER_ID = """
+            SELECT %s FROM files f
+            WHERE f.id > :id
+              AND NOT EXISTS (SELECT 1 FROM vacancies v WHERE v.file_id = f.id)
+              AND NOT EXISTS (SELECT 1 FROM candidates c WHERE c.file_id = f.id)
+            ORDER BY f.id
+            LIMIT :limit
+            """.formatted(RowMappers.FILE_COLUMNS);
+
+    /**
+     * Первый ключ рекомендательной блокировки: отделяет блокировки файлов от других блокировок,
+     * второй ключ - хэш имени файла.
+     */
+    private static final int FILE_LOCK_NAMESPACE = 1;
+
+    private static final String FILE_LOCK = "SELECT pg_advisory_xact_lock(:namespace, hashtext(:name))";
+
+    private final Sql2oUnitOfWork unitOfWork;
+
+    public Sql2oFileRepository(Sql2oUnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public File save(File file) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("INSERT INTO files (name, path) VALUES (:name, :path)", true)
+        return unitOfWork.withConnection(connection -> {
+            String sql = """
+                    INSERT INTO files (name, path, size, hash)
+                    VALUES (:name, :path, :size, :hash)
+                    """;
+            Query query = connection.createQuery(sql, true)
                     .addParameter("name", file.getName())
-                    .addParameter("path", file.getPath());
+                    .addParameter("path", file.getPath())
+                    .addParameter("size", file.getSize())
+                    .addParameter("hash", file.getHash());
             int generatedId = query.executeUpdate().getKey(Integer.class);
             file.setId(generatedId);
             return file;
-        }
+        });
     }
 
+    /**
+     * Файл ищется сразу после сохранения формы, поэтому чтение идёт на основную БД:
+     * на реплике только что добавленной записи может ещё не быть.
+     */
     @Override
     public Optional<File> findById(int id) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM files WHERE id = :id");
-            File file = query.addParameter("id", id).executeAndFetchFirst(File.class);
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(FIND_BY_ID);
+            File file = query.addParameter("id", id).executeAndFetchFirst(RowMappers.FILE);
             return Optional.ofNullable(file);
-        }
+        });
     }
 
     @Override
     public boolean deleteById(int id) {
-        try (Connection connection = sql2o.open()) {
+        return unitOfWork.withConnection(connection -> {
             Query query = connection.createQuery("DELETE FROM files WHERE id = :id");
             int affectedRows = query.addParameter("id", id).executeUpdate().getResult();
             return affectedRows > 0;
+        });
+    }
+
+    /**
+     * По результату решается, удалять ли содержимое, поэтому отстающая реплика не годится.
+     */
+    @Override
+    public int countByPath(String path) {
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(COUNT_BY_PATH);
+            return query.addParameter("path", path).executeScalar(Integer.class);
+        });
+    }
+
+    /**
+     * Уборка считает сиротами ключи, которых здесь нет, и читает с основной БД,
+     * чтобы не пропустить только что добавленные ссылки.
+     */
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return Set.of();
         }
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(FIND_EXISTING_PATHS);
+            return new HashSet<>(query.addParameter("paths", paths).executeScalarList(String.class));
+        });
+    }
+
+    @Override
+    public List<File> findAllAfterId(int id, int limit) {
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(FIND_ALL_AFTER_ID);
+            query.addParameter("id", id);
+            query.addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.FILE);
+        });
+    }
+
+    @Override
+    public int updatePath(String oldPath, String newPath) {
+        return unitOfWork.withConnection(connection -> {
+            Query query = connection.createQuery("UPDATE files SET path = :newPath WHERE path = :oldPath");
+            query.addParameter("newPath", newPath);
+            query.addParameter("oldPath", oldPath);
+            return query.executeUpdate().getResult();
+        });
+    }
+
+    @Override
+    public List<File> findUnreferencedAfterId(int id, int limit) {
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(FIND_UNREFERENCED_AFTER_ID);
+            query.addParameter("id", id);
+            query.addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.FILE);
+        });
+    }
+
+    /**
+     * Рекомендательная блокировка PostgreSQL снимается сама при коммите или откате транзакции.
+     * В других СУБД, как в H2 для тестов, её нет, и файлы защищает только блокировка внутри JVM,
+     * поэтому несколько нод с общим хранилищем допустимы только на PostgreSQL.
+     */
+    @Override
+    public <T> T inFileLock(String fileName, Supplier<T> work) {
+        return unitOfWork.inTransaction(() -> {
+            if (unitOfWork.getDialect() == SqlDialect.POSTGRESQL) {
+                unitOfWork.withConnection(connection -> connection.createQuery(FILE_LOCK)
+                        .addParameter("namespace", FILE_LOCK_NAMESPACE)
+                        .addParameter("name", fileName)
+                        .executeAndFetchTable());
+            }
+            return work.get();
+        });
     }
 
-}
\ No newline at end of file
+}
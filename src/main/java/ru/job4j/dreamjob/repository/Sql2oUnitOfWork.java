@@ -0,0 +1,243 @@
+package ru.job4j.dreamjob.repository;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Транзакция на Sql2o.beginTransaction(). Соединение текущей транзакции хранится в ThreadLocal,
+ * и Sql2o-репозитории получают его через withConnection вместо того, чтобы брать своё из пула.
+ * Если настроена реплика, чтения через withReadConnection уходят на неё, кроме чтений
+ * внутри транзакции, внутри onPrimary и в течение freshness миллисекунд после записи
+ * того же клиента. Момент, до которого клиент читает с основной БД, хранится в ThreadLocal:
+ * для HTTP-запроса его задаёт beginRequest по cookie клиента, для остальных потоков он свой у потока.
+ */
+@ThreadSafe
+@Component
+public class Sql2oUnitOfWork implements UnitOfWork {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Sql2oUnitOfWork.class.getName());
+
+    private final Sql2o sql2o;
+    private final Sql2o replica;
+    private final long freshness;
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+    private final ThreadLocal<ReadScope> readScope = ThreadLocal.withInitial(ReadScope::new);
+    private volatile SqlDialect dialect;
+
+    public Sql2oUnitOfWork(Sql2o sql2o) {
+        this(sql2o, Optional.empty(), 0);
+    }
+
+    @Autowired
+    public Sql2oUnitOfWork(Sql2o databaseClient,
+                           @Qualifier("replicaDatabaseClient") Optional<Sql2o> replicaDatabaseClient,
+                           @Value("${datasource.replica.freshness}") long freshness) {
+        this.sql2o = databaseClient;
+        this.replica = replicaDatabaseClient.orElse(null);
+        this.freshness = freshness;
+    }
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        if (currentTransaction.get() != null) {
+            return work.get();
+        }
+        Transaction transaction = new Transaction(sql2o.beginTransaction());
+        currentTransaction.set(transaction);
+        T result;
+        try {
+            result = work.get();
+            transaction.connection.commit();
+        } catch (RuntimeException | Error e) {
+            rollback(transaction, e);
+            throw e;
+        } finally {
+            currentTransaction.remove();
+            markWritten();
+        }
+        transaction.afterCommitActions.forEach(this::runAfterCommit);
+        return result;
+    }
+
+    @Override
+    public void afterCommit(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction == null) {
+            action.run();
+        } else {
+            transaction.afterCommitActions.add(action);
+        }
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+
+    @Override
+    public <T> T onPrimary(Supplier<T> work) {
+        ReadScope scope = readScope.get();
+        scope.primaryReads++;
+        try {
+            return work.get();
+        } finally {
+            scope.primaryReads--;
+        }
+    }
+
+    /**
+     * Начинает обработку запроса клиента, который писал и должен читать с основной БД
+     * до primaryUntilMillis. Значение приходит от клиента, поэтому ограничивается freshness.
+     * При каждой записи в запросе onWrite получает новый момент, чтобы вернуть его клиенту.
+     */
+    public void beginRequest(long primaryUntilMillis, LongConsumer onWrite) {
+        ReadScope scope = new ReadScope();
+        scope.primaryUntilMillis = Math.min(primaryUntilMillis, System.currentTimeMillis() + freshness);
+        scope.onWrite = onWrite;
+        readScope.set(scope);
+    }
+
+    public void endRequest() {
+        readScope.remove();
+    }
+
+    /**
+     * Выполняет callback на соединении текущей транзакции, а вне транзакции - на отдельном
+     * соединении из пула основной БД, которое закрывается после вызова. Любой вызов считается
+     * записью: следующие freshness миллисекунд чтения этого клиента идут на основную БД.
+     */
+    public <T> T withConnection(Function<Connection, T> callback) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return callback.apply(transaction.connection);
+        }
+        try {
+            return open(sql2o, callback);
+        } finally {
+            markWritten();
+        }
+    }
+
+    /**
+     * Чтение, которому допустимо отставание реплики. Внутри транзакции выполняется на её соединении.
+     */
+    public <T> T withReadConnection(Function<Connection, T> callback) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return callback.apply(transaction.connection);
+        }
+        return open(isReplicaReadable() ? replica : sql2o, callback);
+    }
+
+    /**
+     * Чтение, которое не должно отставать от основной БД, например поиск только что
+     * сохранённой записи по id. В отличие от withConnection записью не считается.
+     */
+    public <T> T withPrimaryConnection(Function<Connection, T> callback) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            return callback.apply(transaction.connection);
+        }
+        return open(sql2o, callback);
+    }
+
+    /**
+     * Будут ли чтения текущего клиента вне транзакции сейчас выполняться на реплике.
+     */
+    public boolean isReplicaReadable() {
+        ReadScope scope = readScope.get();
+        return replica != null && scope.primaryReads == 0
+                && System.currentTimeMillis() >= scope.primaryUntilMillis;
+    }
+
+    private void markWritten() {
+        if (replica != null) {
+            ReadScope scope = readScope.get();
+            scope.primaryUntilMillis = System.currentTimeMillis() + freshness;
+            scope.onWrite.accept(scope.primaryUntilMillis);
+        }
+    }
+
+    private static <T> T open(Sql2o source, Function<Connection, T> callback) {
+        try (Connection connection = source.open()) {
+            return callback.apply(connection);
+        }
+    }
+
+    /**
+     * СУБД определяется по первому соединению и дальше не меняется.
+     */
+    public SqlDialect getDialect() {
+        SqlDialect result = dialect;
+        if (result == null) {
+            result = withReadConnection(connection -> {
+                try {
+                    String name = connection.getJdbcConnection().getMetaData().getDatabaseProductName();
+                    return SqlDialect.of(name);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            dialect = result;
+        }
+        return result;
+    }
+
+    private void rollback(Transaction transaction, Throwable cause) {
+        try {
+            transaction.connection.rollback();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Транзакция уже зафиксирована, поэтому сбой одного действия не должен мешать остальным.
+     */
+    private void runAfterCommit(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            LOG.error("Ошибка при выполнении действия после коммита", e);
+        }
+    }
+
+    /**
+     * Состояние чтений одного клиента: до какого момента читать с основной БД
+     * и сколько вложенных onPrimary сейчас выполняется.
+     */
+    private static class ReadScope {
+
+        private long primaryUntilMillis;
+        private int primaryReads;
+        private LongConsumer onWrite = until -> { };
+
+    }
+
+    private static class Transaction {
+
+        private final Connection connection;
+        private final List<Runnable> afterCommitActions = new ArrayList<>();
+
+        Transaction(Connection connection) {
+            this.connection = connection;
+        }
+
+    }
+
+}
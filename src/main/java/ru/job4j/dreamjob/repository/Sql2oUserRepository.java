@@ -6,63 +6,74 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Connection;
 import org.sql2o.Query;
-import org.sql2o.Sql2o;
 import org.sql2o.Sql2oException;
 import ru.job4j.dreamjob.model.User;
 
 @Repository
 public class Sql2oUserRepository implements UserRepository {
 
+    /**
+     * Запрос входа открыт пакету: QueryPlanTest проверяет его план.
+     */
+    static final String FIND_BY_EMAIL_AND_PASSWORD =
+            "SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE email = :email AND password = :password";
+
     private static final Logger LOG = LoggerFactory.getLogger(Sql2oUserRepository.class.getName());
 
-    private final Sql2o sql2o;
+    private final Sql2oUnitOfWork unitOfWork;
 
-    public Sql2oUserRepository(Sql2o sql2o) {
-        this.sql2o = sql2o;
+    public Sql2oUserRepository(Sql2oUnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public Optional<User> save(User user) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery(
-                    "INSERT INTO users (email, name, password) VALUES (:email, :name, :password)",
-                    true
-            );
-            query.addParameter("email", user.getEmail());
-            query.addParameter("name", user.getName());
-            query.addParameter("password", user.getPassword());
-            int generatedId = query.executeUpdate().getKey(Integer.class);
-            user.setId(generatedId);
-            return Optional.ofNullable(user);
+        try {
+            return unitOfWork.withConnection(connection -> insert(connection, user));
         } catch (Sql2oException e) {
             LOG.error(e.getMessage(), e);
         }
         return Optional.empty();
     }
 
+    private Optional<User> insert(Connection connection, User user) {
+        Query query = connection.createQuery(
+                "INSERT INTO users (email, name, password) VALUES (:email, :name, :password)",
+                true
+        );
+        query.addParameter("email", user.getEmail());
+        query.addParameter("name", user.getName());
+        query.addParameter("password", user.getPassword());
+        int generatedId = query.executeUpdate().getKey(Integer.class);
+        user.setId(generatedId);
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * Вход сразу после регистрации на другой ноде должен найти пользователя, поэтому чтение идёт
+     * на основную БД, но записью не считается и не переводит клиента на неё.
+     */
     @Override
     public Optional<User> findByEmailAndPassword(String email, String password) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery(
-                    "SELECT * FROM users WHERE email = :email AND password = :password"
-            );
+        return unitOfWork.withPrimaryConnection(connection -> {
+            Query query = connection.createQuery(FIND_BY_EMAIL_AND_PASSWORD);
             query.addParameter("email", email);
             query.addParameter("password", password);
-            User user = query.executeAndFetchFirst(User.class);
+            User user = query.executeAndFetchFirst(RowMappers.USER);
             return Optional.ofNullable(user);
-        }
+        });
     }
 
     @Override
     public boolean deleteByEmailAndPassword(String email, String password) {
-        try (Connection connection = sql2o.open()) {
+        return unitOfWork.withConnection(connection -> {
             Query query = connection.createQuery(
                     "DELETE FROM users WHERE email = :email AND password = :password");
             query.addParameter("email", email);
             query.addParameter("password", password);
             int affectedRows = query.executeUpdate().getResult();
             return affectedRows > 0;
-        }
+        });
     }
 
 }
\ No newline at end of file
@@ -3,24 +3,103 @@ package ru.job4j.dreamjob.repository;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Connection;
 import org.sql2o.Query;
-import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Repository
 public class Sql2oVacancyRepository implements VacancyRepository {
 
-    private final Sql2o sql2o;
+    /**
+     * Имя записей в сообщениях шины, совпадает с именем таблицы.
+     */
+    public static final String ENTITY = "vacancies";
 
-    public Sql2oVacancyRepository(Sql2o sql2o) {
-        this.sql2o = sql2o;
+    /**
+     * Запросы горячих путей открыты пакету: QueryPlanTest проверяет их планы.
+     */
+    static final String FIND_BY_ID =
+            "SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies WHERE id = :id";
+
+    static final String NEWEST_FIRST = "ORDER BY creation_date DESC, id DESC";
+
+    static final String OLDEST_FIRST = "ORDER BY creation_date, id";
+
+    /**
+     * search_vector - генерируемый столбец с GIN-индексом, заголовок в нём весит больше описания.
+     */
+    private static final String FULL_TEXT_SEARCH = """
+            SELECT %s
+            FROM vacancies, websearch_to_tsquery('russian', :query) AS q
+            WHERE search_vector @@ q
+            ORDER BY ts_rank(search_vector, q) DESC, creation_date DESC, id DESC
+            LIMIT :limit OFFSET :offset
+            """.formatted(RowMappers.VACANCY_SUMMARY_COLUMNS);
+
+    /**
+     * Запасной вариант для СУБД без tsvector: вхождение строки целиком, совпадения в заголовке выше.
+     */
+    private static final String SUBSTRING_SEARCH = """
+            SELECT %s
+            FROM vacancies
+            WHERE LOWER(title) LIKE :query ESCAPE '!' OR LOWER(description) LIKE :query ESCAPE '!'
+            ORDER BY CASE WHEN LOWER(title) LIKE :query ESCAPE '!' THEN 0 ELSE 1 END,
+                     creation_date DESC, id DESC
+            LIMIT :limit OFFSET :offset
+            """.formatted(RowMappers.VACANCY_SUMMARY_COLUMNS);
+
+    private static final String SET_COLUMNS = """
+            title = :title, description = :description, creation_date = :creationDate,
+            visible = :visible, city_id = :cityId, file_id = :fileId""";
+
+    /**
+     * PostgreSQL отдаёт значения удалённой строки через RETURNING, H2 - через таблицу дельты OLD TABLE.
+     */
+    private static final String DELETE_RETURNING_FILE_ID =
+            "DELETE FROM vacancies WHERE id = :id RETURNING file_id";
+
+    private static final String DELETE_OLD_TABLE_FILE_ID =
+            "SELECT file_id FROM OLD TABLE (DELETE FROM vacancies WHERE id = :id)";
+
+    /**
+     * RETURNING в PostgreSQL видит только новые значения, поэтому старый file_id берётся из подзапроса,
+     * который блокирует строку до конца оператора.
+     */
+    private static final String UPDATE_RETURNING_PREVIOUS_FILE_ID = """
+            UPDATE vacancies AS v
+            SET %s
+            FROM (SELECT id, file_id FROM vacancies WHERE id = :id FOR UPDATE) AS previous
+            WHERE v.id = previous.id
+            RETURNING previous.file_id
+            """.formatted(SET_COLUMNS);
+
+    private static final String UPDATE_OLD_TABLE_FILE_ID = """
+            SELECT file_id FROM OLD TABLE (UPDATE vacancies SET %s WHERE id = :id)
+            """.formatted(SET_COLUMNS);
+
+    private final Sql2oUnitOfWork unitOfWork;
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Об изменении и удалении сообщается всем нодам через invalidationBus. Новые записи
+     * ещё не могут лежать ни в одном кэше, поэтому о них не сообщается.
+     */
+    public Sql2oVacancyRepository(Sql2oUnitOfWork unitOfWork, InvalidationBus invalidationBus) {
+        this.unitOfWork = unitOfWork;
+        this.invalidationBus = invalidationBus;
     }
 
     @Override
     public Vacancy save(Vacancy vacancy) {
-        try (Connection connection = sql2o.open()) {
+        return unitOfWork.withConnection(connection -> {
             String sql = """
                     INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
                     VALUES (:title, :description, :creationDate, :visible, :cityId, :fileId)
@@ -35,58 +114,154 @@ public class Sql2oVacancyRepository implements VacancyRepository {
             int generatedId = query.executeUpdate().getKey(Integer.class);
             vacancy.setId(generatedId);
             return vacancy;
-        }
+        });
     }
 
     @Override
     public boolean deleteById(int id) {
-        try (Connection connection = sql2o.open()) {
+        return writeAndPublish(id, connection -> {
             Query query = connection.createQuery("DELETE FROM vacancies WHERE id = :id");
             query.addParameter("id", id);
             int affectedRows = query.executeUpdate().getResult();
             return affectedRows > 0;
-        }
+        }, Boolean::booleanValue);
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningFileId(int id) {
+        String sql = unitOfWork.getDialect() == SqlDialect.POSTGRESQL
+                ? DELETE_RETURNING_FILE_ID : DELETE_OLD_TABLE_FILE_ID;
+        return writeAndPublish(id, connection -> {
+            Query query = connection.createQuery(sql).addParameter("id", id);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }, Optional::isPresent);
     }
 
     @Override
     public boolean update(Vacancy vacancy) {
-        try (Connection connection = sql2o.open()) {
-            String sql = """
-                    UPDATE vacancies
-                    SET title = :title, description = :description, creation_date = :creationDate,
-                        visible = :visible, city_id = :cityId, file_id = :fileId
-                    WHERE id = :id;
-                    """;
-            Query query = connection.createQuery(sql)
-                    .addParameter("title", vacancy.getTitle())
-                    .addParameter("description", vacancy.getDescription())
-                    .addParameter("creationDate", vacancy.getCreationDate())
-                    .addParameter("visible", vacancy.getVisible())
-                    .addParameter("cityId", vacancy.getCityId())
-                    .addParameter("fileId", vacancy.getFileId())
-                    .addParameter("id", vacancy.getId());
+        return writeAndPublish(vacancy.getId(), connection -> {
+            String sql = "UPDATE vacancies SET " + SET_COLUMNS + " WHERE id = :id";
+            Query query = bindColumns(connection.createQuery(sql), vacancy);
             int affectedRows = query.executeUpdate().getResult();
             return affectedRows > 0;
-        }
+        }, Boolean::booleanValue);
+    }
+
+    @Override
+    public Optional<Integer> updateReturningPreviousFileId(Vacancy vacancy) {
+        String sql = unitOfWork.getDialect() == SqlDialect.POSTGRESQL
+                ? UPDATE_RETURNING_PREVIOUS_FILE_ID : UPDATE_OLD_TABLE_FILE_ID;
+        return writeAndPublish(vacancy.getId(), connection -> {
+            Query query = bindColumns(connection.createQuery(sql), vacancy);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }, Optional::isPresent);
+    }
+
+    /**
+     * Изменение и сообщение о нём идут в одной транзакции на одном соединении: другие ноды
+     * узнают об изменении вместе с его коммитом, а при откате не узнают вовсе.
+     */
+    private <T> T writeAndPublish(int id, Function<Connection, T> write, Predicate<T> isChanged) {
+        return unitOfWork.inTransaction(() -> unitOfWork.withConnection(connection -> {
+            T result = write.apply(connection);
+            if (isChanged.test(result)) {
+                invalidationBus.publish(ENTITY, id);
+            }
+            return result;
+        }));
+    }
+
+    private static Query bindColumns(Query query, Vacancy vacancy) {
+        return query.addParameter("title", vacancy.getTitle())
+                .addParameter("description", vacancy.getDescription())
+                .addParameter("creationDate", vacancy.getCreationDate())
+                .addParameter("visible", vacancy.getVisible())
+                .addParameter("cityId", vacancy.getCityId())
+                .addParameter("fileId", vacancy.getFileId())
+                .addParameter("id", vacancy.getId());
     }
 
     @Override
     public Optional<Vacancy> findById(int id) {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM vacancies WHERE id = :id");
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = connection.createQuery(FIND_BY_ID);
             query.addParameter("id", id);
-            Vacancy vacancy = query.setColumnMappings(Vacancy.COLUMN_MAPPING)
-                    .executeAndFetchFirst(Vacancy.class);
+            Vacancy vacancy = query.executeAndFetchFirst(RowMappers.VACANCY);
             return  Optional.ofNullable(vacancy);
-        }
+        });
     }
 
     @Override
     public Collection<Vacancy> findAll() {
-        try (Connection connection = sql2o.open()) {
-            Query query = connection.createQuery("SELECT * FROM vacancies");
-            return query.setColumnMappings(Vacancy.COLUMN_MAPPING).executeAndFetch(Vacancy.class);
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = connection.createQuery(
+                    "SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies");
+            return query.executeAndFetch(RowMappers.VACANCY);
+        });
+    }
+
+    @Override
+    public List<VacancySummaryDto> findPageAfter(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return findPage(pageAfter(cursor, criteria), NEWEST_FIRST, limit);
+    }
+
+    @Override
+    public List<VacancySummaryDto> findPageBefore(PageCursor cursor, VacancyCriteria criteria, int limit) {
+        return findPage(pageBefore(cursor, criteria), OLDEST_FIRST, limit);
+    }
+
+    private List<VacancySummaryDto> findPage(SqlCriteria where, String orderBy, int limit) {
+        String sql = pageQuery(where, orderBy);
+        return unitOfWork.withReadConnection(connection -> {
+            Query query = where.bind(connection.createQuery(sql)).addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.VACANCY_SUMMARY);
+        });
+    }
+
+    static SqlCriteria pageAfter(PageCursor cursor, VacancyCriteria criteria) {
+        SqlCriteria where = toSqlCriteria(criteria);
+        if (cursor != null) {
+            where.and("(creation_date, id) < (:creationDate, :id)")
+                    .with("creationDate", cursor.getCreationDate())
+                    .with("id", cursor.getId());
         }
+        return where;
+    }
+
+    static SqlCriteria pageBefore(PageCursor cursor, VacancyCriteria criteria) {
+        return toSqlCriteria(criteria)
+                .and("(creation_date, id) > (:creationDate, :id)")
+                .with("creationDate", cursor.getCreationDate())
+                .with("id", cursor.getId());
+    }
+
+    /**
+     * Запрос страницы с параметром limit и параметрами where.
+     */
+    static String pageQuery(SqlCriteria where, String orderBy) {
+        return String.join(System.lineSeparator(),
+                "SELECT " + RowMappers.VACANCY_SUMMARY_COLUMNS + " FROM vacancies", where.toWhereClause(),
+                orderBy, "LIMIT :limit");
+    }
+
+    private static SqlCriteria toSqlCriteria(VacancyCriteria criteria) {
+        return new SqlCriteria()
+                .andIfPresent("city_id = :cityId", "cityId", criteria.getCityId())
+                .andIfPresent("visible = :visible", "visible", criteria.getVisible())
+                .andIfPresent("creation_date >= :createdFrom", "createdFrom", criteria.getCreatedFrom())
+                .andIfPresent("creation_date < :createdBefore", "createdBefore", criteria.getCreatedBefore());
+    }
+
+    @Override
+    public List<VacancySummaryDto> search(String query, int offset, int limit) {
+        boolean isFullText = unitOfWork.getDialect() == SqlDialect.POSTGRESQL;
+        return unitOfWork.withReadConnection(connection -> {
+            Query sqlQuery = connection.createQuery(isFullText ? FULL_TEXT_SEARCH : SUBSTRING_SEARCH)
+                    .addParameter("query", isFullText ? query : LikePattern.contains(query))
+                    .addParameter("offset", offset)
+                    .addParameter("limit", limit);
+            return sqlQuery.executeAndFetch(RowMappers.VACANCY_SUMMARY);
+        });
     }
 
 }
\ No newline at end of file
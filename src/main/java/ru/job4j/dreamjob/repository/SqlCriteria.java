@@ -0,0 +1,51 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Собирает WHERE из условий, соединённых AND. Значения передаются только именованными
+ * параметрами, в текст запроса попадают лишь условия, написанные в коде репозитория.
+ */
+final class SqlCriteria {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    SqlCriteria and(String condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * Условие с одним параметром name добавляется, только если значение задано.
+     */
+    SqlCriteria andIfPresent(String condition, String name, Object value) {
+        if (value != null) {
+            and(condition).with(name, value);
+        }
+        return this;
+    }
+
+    SqlCriteria with(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * @return пустая строка, если условий нет
+     */
+    String toWhereClause() {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    Query bind(Query query) {
+        parameters.forEach(query::addParameter);
+        return query;
+    }
+
+}
\ No newline at end of file
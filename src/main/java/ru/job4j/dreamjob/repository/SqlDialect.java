@@ -0,0 +1,17 @@
+package ru.job4j.dreamjob.repository;
+
+/**
+ * СУБД, под которую репозиторий выбирает вариант запроса. Рабочая база - PostgreSQL,
+ * тесты идут на H2 в режиме совместимости, который не умеет PostgreSQL-специфичных вещей
+ * вроде tsvector.
+ */
+public enum SqlDialect {
+
+    POSTGRESQL,
+    OTHER;
+
+    public static SqlDialect of(String databaseProductName) {
+        return "PostgreSQL".equals(databaseProductName) ? POSTGRESQL : OTHER;
+    }
+
+}
\ No newline at end of file
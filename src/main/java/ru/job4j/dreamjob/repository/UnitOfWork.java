@@ -0,0 +1,33 @@
+package ru.job4j.dreamjob.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Единица работы: все обращения репозиториев внутри inTransaction идут через одно соединение
+ * и фиксируются одним коммитом либо целиком откатываются.
+ */
+public interface UnitOfWork {
+
+    /**
+     * Выполняет work в транзакции. Вложенный вызов присоединяется к уже начатой транзакции.
+     * Любое исключение из work откатывает транзакцию и пробрасывается дальше.
+     */
+    <T> T inTransaction(Supplier<T> work);
+
+    /**
+     * Действие выполняется после успешного коммита текущей транзакции и не выполняется при откате.
+     * Вне транзакции действие выполняется сразу.
+     */
+    void afterCommit(Runnable action);
+
+    /**
+     * Идёт ли в текущем потоке транзакция, начатая inTransaction.
+     */
+    boolean isInTransaction();
+
+    /**
+     * Выполняет work так, что чтения внутри него идут на основную БД, а не на реплику.
+     */
+    <T> T onPrimary(Supplier<T> work);
+
+}
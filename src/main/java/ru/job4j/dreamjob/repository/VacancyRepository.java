@@ -1,8 +1,12 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface VacancyRepository {
@@ -11,10 +15,41 @@ public interface VacancyRepository {
 
     boolean deleteById(int id);
 
+    /**
+     * Удаляет запись одним запросом.
+     *
+     * @return file_id удалённой записи, пусто - если записи не было
+     */
+    Optional<Integer> deleteByIdReturningFileId(int id);
+
     boolean update(Vacancy vacancy);
 
+    /**
+     * Обновляет запись одним запросом.
+     *
+     * @return file_id, на который запись ссылалась до обновления, пусто - если записи не было
+     */
+    Optional<Integer> updateReturningPreviousFileId(Vacancy vacancy);
+
     Optional<Vacancy> findById(int id);
 
     Collection<Vacancy> findAll();
 
+    /**
+     * Записи, подходящие под criteria и идущие в списке после курсора, в порядке (creation_date, id)
+     * по убыванию.
+     * Без курсора - самые новые записи.
+     */
+    List<VacancySummaryDto> findPageAfter(PageCursor cursor, VacancyCriteria criteria, int limit);
+
+    /**
+     * Записи, идущие в списке перед курсором, начиная с ближайшей к нему, то есть по возрастанию.
+     */
+    List<VacancySummaryDto> findPageBefore(PageCursor cursor, VacancyCriteria criteria, int limit);
+
+    /**
+     * Поиск по названию и описанию: до limit записей, начиная с offset, по убыванию релевантности.
+     */
+    List<VacancySummaryDto> search(String query, int offset, int limit);
+
 }
\ No newline at end of file
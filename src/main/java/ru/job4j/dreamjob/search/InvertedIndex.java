@@ -0,0 +1,172 @@
+package ru.job4j.dreamjob.search;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс: для каждого слова - список id документов, где оно встречается.
+ * Запрос читает только списки своих слов, а не все документы. Документ состоит из полей,
+ * вес слова в документе - сумма весов полей по всем его вхождениям.
+ * <p>
+ * Релевантность - сумма по словам запроса веса слова в документе, умноженного на
+ * log(1 + N / df), где N - число документов, df - число документов со словом: редкие
+ * слова значат больше частых. При равной релевантности выше документ с большим id.
+ */
+@ThreadSafe
+public class InvertedIndex {
+
+    private final int[] fieldWeights;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock")
+    private final Map<String, PostingList> postings = new HashMap<>();
+    @GuardedBy("lock")
+    private final Map<Integer, String[]> documentTerms = new HashMap<>();
+
+    /**
+     * fieldWeights[i] - вес слова, встреченного в i-м поле документа.
+     */
+    public InvertedIndex(int... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Добавляет документ или заменяет прежнюю версию документа с тем же id.
+     */
+    public void put(int id, String... fields) {
+        Map<String, Integer> termWeights = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            int weight = fieldWeights[i];
+            Tokenizer.tokenize(fields[i]).forEach(term -> termWeights.merge(term, weight, Integer::sum));
+        }
+        lock.writeLock().lock();
+        try {
+            removeTerms(id);
+            termWeights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).put(id, weight));
+            documentTerms.put(id, termWeights.keySet().toArray(String[]::new));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeTerms(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * До limit id документов, содержащих хотя бы одно слово запроса, по убыванию релевантности.
+     */
+    public int[] search(String query, int limit) {
+        List<String> terms = Tokenizer.tokenize(query).stream().distinct().toList();
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = terms.stream()
+                    .map(postings::get)
+                    .filter(Objects::nonNull)
+                    .toArray(PostingList[]::new);
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = Math.log(1.0 + (double) documentTerms.size() / lists[i].size());
+            }
+            return top(merge(lists, idf), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void removeTerms(int id) {
+        String[] terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(id);
+            if (list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Слияние отсортированных списков: каждый документ получает суммарный вес за один проход.
+     */
+    private Scores merge(PostingList[] lists, double[] idf) {
+        int[] positions = new int[lists.length];
+        Scores scores = new Scores();
+        while (true) {
+            int id = Integer.MAX_VALUE;
+            boolean hasNext = false;
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < lists[i].size()) {
+                    id = Math.min(id, lists[i].idAt(positions[i]));
+                    hasNext = true;
+                }
+            }
+            if (!hasNext) {
+                return scores;
+            }
+            double score = 0;
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < lists[i].size() && lists[i].idAt(positions[i]) == id) {
+                    score += lists[i].weightAt(positions[i]) * idf[i];
+                    positions[i]++;
+                }
+            }
+            scores.add(id, score);
+        }
+    }
+
+    private int[] top(Scores scores, int limit) {
+        Comparator<Integer> byRank = Comparator.<Integer>comparingDouble(i -> scores.values[i])
+                .thenComparingInt(i -> scores.ids[i]);
+        PriorityQueue<Integer> best = new PriorityQueue<>(byRank);
+        for (int i = 0; i < scores.size; i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = scores.ids[best.poll()];
+        }
+        return result;
+    }
+
+    private static class Scores {
+
+        private int[] ids = new int[16];
+        private double[] values = new double[16];
+        private int size;
+
+        void add(int id, double value) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ids[size] = id;
+            values[size] = value;
+            size++;
+        }
+
+    }
+
+}
\ No newline at end of file
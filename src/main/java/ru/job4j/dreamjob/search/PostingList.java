@@ -0,0 +1,62 @@
+package ru.job4j.dreamjob.search;
+
+import java.util.Arrays;
+
+/**
+ * Список документов, содержащих слово: id по возрастанию и вес слова в каждом документе
+ * в параллельных массивах примитивов.
+ */
+final class PostingList {
+
+    private int[] ids = new int[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    /**
+     * id новых записей обычно больше всех прежних, поэтому вставка чаще всего идёт в конец.
+     */
+    void put(int id, int weight) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            weights[index] = weight;
+            return;
+        }
+        index = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(weights, index, weights, index + 1, size - index);
+        ids[index] = id;
+        weights[index] = weight;
+        size++;
+    }
+
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int idAt(int index) {
+        return ids[index];
+    }
+
+    int weightAt(int index) {
+        return weights[index];
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package ru.job4j.dreamjob.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбивает текст на слова из букв и цифр любого алфавита. Слова приводятся к нижнему регистру,
+ * ё заменяется на е. Словоформы не нормализуются: "разработчик" и "разработчика" - разные слова.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char symbol = text.charAt(i);
+            if (Character.isLetterOrDigit(symbol)) {
+                token.append(normalize(symbol));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static char normalize(char symbol) {
+        char lower = Character.toLowerCase(symbol);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+}
\ No newline at end of file
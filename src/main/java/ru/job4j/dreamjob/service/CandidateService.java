@@ -1,6 +1,11 @@
 package ru.job4j.dreamjob.service;
 
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
@@ -8,14 +13,26 @@ import java.util.Optional;
 
 public interface CandidateService {
 
-    Candidate save(Candidate candidate, FileDto image);
+    Candidate save(Candidate candidate, FileUploadDto image);
 
     boolean deleteById(int id);
 
-    boolean update(Candidate candidate, FileDto image);
+    boolean update(Candidate candidate, FileUploadDto image);
 
     Optional<Candidate> findById(int id);
 
     Collection<Candidate> findAll();
 
+    /**
+     * Страница, следующая за курсором, а без курсора - первая страница.
+     */
+    PageDto<CandidateSummaryDto> findNextPage(PageCursor cursor, CandidateCriteria criteria, int size);
+
+    PageDto<CandidateSummaryDto> findPreviousPage(PageCursor cursor, CandidateCriteria criteria, int size);
+
+    /**
+     * Страница результатов поиска, упорядоченных по релевантности. Страницы нумеруются с нуля.
+     */
+    SearchPageDto<CandidateSummaryDto> search(String query, int page, int size);
+
 }
\ No newline at end of file
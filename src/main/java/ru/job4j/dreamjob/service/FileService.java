@@ -1,6 +1,9 @@
 package ru.job4j.dreamjob.service;
 
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.StoredFileDto;
 import ru.job4j.dreamjob.model.File;
 
 import java.util.Optional;
@@ -9,8 +12,49 @@ public interface FileService {
 
     File save(FileDto fileDto);
 
+    File save(FileUploadDto upload);
+
+    /**
+     * Пишет содержимое в хранилище без записи files, поэтому загрузку можно вести вне транзакции.
+     * После транзакции с save(StoredFileDto) вызывается release, а при её откате ещё и discard.
+     */
+    StoredFileDto store(FileUploadDto upload);
+
+    /**
+     * Добавляет запись files для содержимого из store. Внутри UnitOfWork.inTransaction
+     * запись фиксируется и откатывается вместе с остальной работой транзакции.
+     */
+    File save(StoredFileDto stored);
+
+    /**
+     * Удаляет содержимое, запись files для которого не зафиксирована.
+     */
+    void discard(StoredFileDto stored);
+
+    /**
+     * Удаляет временную копию содержимого, если она осталась.
+     */
+    void release(StoredFileDto stored);
+
     Optional<FileDto> getFileById(int id);
 
+    /**
+     * Метаданные файла без чтения содержимого.
+     */
+    Optional<File> findFileById(int id);
+
+    /**
+     * Метаданные уменьшенной до заданной ширины копии: имя и путь, под которым она хранится.
+     */
+    Optional<File> findFileById(int id, int width);
+
+    Optional<FileResourceDto> getFileResourceById(int id);
+
+    /**
+     * Уменьшенная до заданной ширины копия изображения.
+     */
+    Optional<FileResourceDto> getFileResourceById(int id, int width);
+
     boolean deleteById(int id);
 
 }
\ No newline at end of file
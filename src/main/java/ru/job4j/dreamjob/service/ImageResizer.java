@@ -0,0 +1,161 @@
+package ru.job4j.dreamjob.service;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Уменьшение изображений средствами javax.imageio. Декодирование больших фотографий занимает
+ * процессор и память, поэтому работа выполняется в ограниченном пуле потоков: когда пул и очередь
+ * заняты, новая задача отклоняется RejectedExecutionException, а не копится без предела.
+ */
+@ThreadSafe
+@Component
+public class ImageResizer {
+
+    private static final String DEFAULT_FORMAT = "png";
+
+    private final List<Integer> widths;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    public ImageResizer(@Value("${file.thumbnail.widths}") List<Integer> widths,
+                        @Value("${file.thumbnail.max-pixels}") long maxPixels,
+                        @Value("${file.thumbnail.threads}") int threads,
+                        @Value("${file.thumbnail.queue-capacity}") int queueCapacity) {
+        this.widths = widths.stream().sorted().toList();
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "image-resizer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    /**
+     * Запрошенная ширина округляется вверх до ближайшей разрешённой, чтобы произвольные значения
+     * параметра не порождали неограниченное число копий.
+     */
+    public int normalizeWidth(int width) {
+        return widths.stream()
+                .filter(allowed -> allowed >= width)
+                .findFirst()
+                .orElse(widths.get(widths.size() - 1));
+    }
+
+    /**
+     * Копия пишется в формате оригинала, если для него есть writer, иначе в PNG.
+     */
+    public String getFormat(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String suffix = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ImageIO.getImageWritersBySuffix(suffix).hasNext() ? suffix : DEFAULT_FORMAT;
+    }
+
+    /**
+     * @return содержимое уменьшенной копии или пустой Optional, если исходный файл не изображение,
+     * уже не шире запрошенного либо для формата не нашлось writer
+     */
+    public Optional<byte[]> resize(Resource source, int width, String format) {
+        Future<Optional<byte[]>> result = executor.submit(() -> resizeNow(source, width, format));
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Размер читается из заголовка, и изображение, которое не нужно уменьшать, целиком не декодируется.
+     */
+    private Optional<byte[]> resizeNow(Resource source, int width, String format) throws IOException {
+        try (InputStream input = source.getInputStream();
+             ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if (sourceWidth <= width || (long) sourceWidth * sourceHeight > maxPixels) {
+                    return Optional.empty();
+                }
+                BufferedImage image = scale(reader.read(0), width, format);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                if (!ImageIO.write(image, format, output)) {
+                    return Optional.empty();
+                }
+                return Optional.of(output.toByteArray());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Уменьшение идёт шагами не больше чем вдвое: билинейная интерполяция за один большой шаг
+     * теряет детали и даёт заметную рябь.
+     */
+    private BufferedImage scale(BufferedImage source, int width, String format) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        boolean opaque = "jpg".equals(format) || "jpeg".equals(format) || "bmp".equals(format);
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,223 @@
+package ru.job4j.dreamjob.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.storage.FileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Фоновая уборка файлов, оставшихся после сбоев между шагами сохранения вакансии или кандидата:
+ * записей files, на которые никто не ссылается, и содержимого в хранилище без записей files.
+ * <p>
+ * Только что загруженный файл тоже какое-то время ни на что не ссылается, поэтому удаление
+ * двухфазное: удаляется лишь то, что было сиротой и при прошлом проходе, то есть не меньше
+ * file.gc.interval назад. И записи, и ключи хранилища просматриваются пачками по file.gc.batch-size
+ * с паузой file.gc.batch-pause после каждой, так что нагрузку ограничивает и поиск, и удаление.
+ * При file.gc.dry-run=true ничего не удаляется: то, что было бы удалено, подсчитывается и пишется в лог.
+ */
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "file.gc.enabled", havingValue = "true")
+public class OrphanFileCollector implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrphanFileCollector.class.getName());
+
+    private final FileRepository fileRepository;
+    private final SimpleFileService fileService;
+    private final FileStorage storage;
+    private final StorageLayout layout;
+    private final int batchSize;
+    private final long batchPause;
+    private final boolean dryRun;
+    private final AtomicLong deletedRows = new AtomicLong();
+    private final AtomicLong deletedBlobs = new AtomicLong();
+    private final AtomicLong orphanRows = new AtomicLong();
+    private final AtomicLong orphanBlobs = new AtomicLong();
+    private final AtomicLong lastDuration = new AtomicLong();
+
+    @GuardedBy("this")
+    private Set<Integer> suspectedRows = Set.of();
+
+    @GuardedBy("this")
+    private Set<String> suspectedBlobs = Set.of();
+
+    public OrphanFileCollector(FileRepository sql2oFileRepository,
+                               SimpleFileService fileService,
+                               FileStorage storage,
+                               StorageLayout layout,
+                               @Value("${file.gc.batch-size}") int batchSize,
+                               @Value("${file.gc.batch-pause}") long batchPause,
+                               @Value("${file.gc.dry-run}") boolean dryRun) {
+        this.fileRepository = sql2oFileRepository;
+        this.fileService = fileService;
+        this.storage = storage;
+        this.layout = layout;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String mode = String.valueOf(dryRun);
+        FunctionCounter.builder("files.gc.deleted", deletedRows, AtomicLong::get)
+                .tag("type", "row").tag("dry-run", mode)
+                .description("Удалённые записи files без ссылок").register(registry);
+        FunctionCounter.builder("files.gc.deleted", deletedBlobs, AtomicLong::get)
+                .tag("type", "blob").tag("dry-run", mode)
+                .description("Удалённое содержимое без записей files").register(registry);
+        Gauge.builder("files.gc.orphans", orphanRows, AtomicLong::get)
+                .tag("type", "row")
+                .description("Записи files без ссылок, найденные последним проходом").register(registry);
+        Gauge.builder("files.gc.orphans", orphanBlobs, AtomicLong::get)
+                .tag("type", "blob")
+                .description("Содержимое без записей files, найденное последним проходом").register(registry);
+        TimeGauge.builder("files.gc.duration", lastDuration, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Длительность последнего прохода").register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${file.gc.initial-delay}", fixedDelayString = "${file.gc.interval}")
+    public void scheduledCollect() {
+        try {
+            collect();
+        } catch (RuntimeException e) {
+            LOG.error("Уборка файлов прервана", e);
+        }
+    }
+
+    /**
+     * Один проход уборки.
+     */
+    public synchronized void collect() {
+        long start = System.currentTimeMillis();
+        Set<Integer> rows = collectRows();
+        Set<String> blobs = collectBlobs();
+        suspectedRows = rows;
+        suspectedBlobs = blobs;
+        orphanRows.set(rows.size());
+        orphanBlobs.set(blobs.size());
+        lastDuration.set(System.currentTimeMillis() - start);
+        LOG.info("Уборка файлов{}: записей без ссылок {}, содержимого без записей {}, удалено {} и {}",
+                dryRun ? " (dry-run)" : "", rows.size(), blobs.size(), deletedRows.get(), deletedBlobs.get());
+    }
+
+    private Set<Integer> collectRows() {
+        Set<Integer> found = new HashSet<>();
+        int lastId = 0;
+        List<File> batch = fileRepository.findUnreferencedAfterId(lastId, batchSize);
+        while (!batch.isEmpty()) {
+            for (File file : batch) {
+                lastId = file.getId();
+                if (suspectedRows.contains(lastId) && deleteRow(file)) {
+                    continue;
+                }
+                found.add(lastId);
+            }
+            pause();
+            batch = fileRepository.findUnreferencedAfterId(lastId, batchSize);
+        }
+        return found;
+    }
+
+    /**
+     * Запись могла получить ссылку между поиском и удалением, тогда удаление отклонит внешний ключ.
+     */
+    private boolean deleteRow(File file) {
+        if (dryRun) {
+            LOG.info("Dry-run: была бы удалена запись files id={} path={}", file.getId(), file.getPath());
+            deletedRows.incrementAndGet();
+            return false;
+        }
+        try {
+            boolean isDeleted = fileService.deleteById(file.getId());
+            if (isDeleted) {
+                deletedRows.incrementAndGet();
+            }
+            return isDeleted;
+        } catch (RuntimeException e) {
+            LOG.warn("Не удалось удалить запись files id={}", file.getId(), e);
+            return false;
+        }
+    }
+
+    private Set<String> collectBlobs() {
+        Set<String> found = new HashSet<>();
+        try (Stream<String> keys = storage.list(layout.getRootKey())) {
+            Iterator<String> iterator = keys.iterator();
+            List<String> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    collectBlobs(batch, found);
+                    batch.clear();
+                    pause();
+                }
+            }
+        }
+        return found;
+    }
+
+    private void collectBlobs(List<String> batch, Set<String> found) {
+        for (String key : fileService.findOrphanBlobs(batch)) {
+            if (!suspectedBlobs.contains(key) || !deleteBlob(key)) {
+                found.add(key);
+            }
+        }
+    }
+
+    private boolean deleteBlob(String key) {
+        if (dryRun) {
+            LOG.info("Dry-run: было бы удалено содержимое {}", key);
+            deletedBlobs.incrementAndGet();
+            return false;
+        }
+        try {
+            boolean isDeleted = fileService.deleteOrphanBlob(key);
+            if (isDeleted) {
+                deletedBlobs.incrementAndGet();
+            }
+            return isDeleted;
+        } catch (RuntimeException e) {
+            LOG.warn("Не удалось удалить содержимое {}", key, e);
+            return false;
+        }
+    }
+
+    /**
+     * После каждой просмотренной пачки уборка делает паузу, чтобы не нагружать базу и хранилище.
+     */
+    private void pause() {
+        if (batchPause <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package ru.job4j.dreamjob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Одноразовый перенос файлов из плоского file.directory в подкаталоги.
+ * Включается свойством file.storage.migrate-to-sharded=true и идёт в отдельном потоке,
+ * пока приложение обслуживает запросы: SimpleFileService находит файл в любой из раскладок.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.migrate-to-sharded", havingValue = "true")
+public class ShardedLayoutMigration implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedLayoutMigration.class.getName());
+
+    private final SimpleFileService fileService;
+    private final int batchSize;
+
+    public ShardedLayoutMigration(SimpleFileService fileService,
+                                  @Value("${file.storage.migration-batch-size}") int batchSize) {
+        this.fileService = fileService;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::migrate, "sharded-layout-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void migrate() {
+        LOG.info("Начат перенос файлов в подкаталоги");
+        int migrated = fileService.migrateToShardedLayout(batchSize);
+        LOG.info("Перенос файлов в подкаталоги завершён, перенесено: {}", migrated);
+    }
+
+}
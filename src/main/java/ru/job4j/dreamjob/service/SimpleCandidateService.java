@@ -2,12 +2,19 @@ package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Service;
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.StoredFileDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
 import ru.job4j.dreamjob.model.Candidate;
-import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.repository.CandidateRepository;
+import ru.job4j.dreamjob.repository.UnitOfWork;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @ThreadSafe
@@ -16,45 +23,75 @@ public class SimpleCandidateService implements CandidateService {
 
     private final CandidateRepository candidateRepository;
     private final FileService fileService;
+    private final UnitOfWork unitOfWork;
 
-    public SimpleCandidateService(CandidateRepository sql2oCandidateRepository, FileService fileService) {
+    public SimpleCandidateService(CandidateRepository sql2oCandidateRepository, FileService fileService,
+                               UnitOfWork unitOfWork) {
         this.candidateRepository = sql2oCandidateRepository;
         this.fileService = fileService;
+        this.unitOfWork = unitOfWork;
     }
 
+    /**
+     * Содержимое файла пишется в хранилище до транзакции, чтобы загрузка не держала соединение пула.
+     * Запись files и кандидат сохраняются в одной транзакции на одном соединении и откатываются
+     * вместе, а при откате ненужное содержимое удаляется.
+     */
     @Override
-    public Candidate save(Candidate candidate, FileDto image) {
-        saveNewFile(candidate, image);
-        return candidateRepository.save(candidate);
-    }
-
-    private void saveNewFile(Candidate candidate, FileDto image) {
-        File file = fileService.save(image);
-        candidate.setFileId(file.getId());
+    public Candidate save(Candidate candidate, FileUploadDto image) {
+        StoredFileDto stored = fileService.store(image);
+        try {
+            return unitOfWork.inTransaction(() -> {
+                candidate.setFileId(fileService.save(stored).getId());
+                return candidateRepository.save(candidate);
+            });
+        } catch (RuntimeException e) {
+            fileService.discard(stored);
+            throw e;
+        } finally {
+            fileService.release(stored);
+        }
     }
 
+    /**
+     * Запись удаляется одним запросом, который заодно возвращает её file_id.
+     * Файл удаляется только после коммита: при откате запись должна ссылаться на существующий файл.
+     */
     @Override
     public boolean deleteById(int id) {
-        Optional<Candidate> fileOptional = findById(id);
-        if (fileOptional.isEmpty()) {
-            return false;
-        }
-        boolean isDeleted = candidateRepository.deleteById(id);
-        fileService.deleteById(fileOptional.get().getFileId());
-        return isDeleted;
+        Optional<Integer> fileId = candidateRepository.deleteByIdReturningFileId(id);
+        fileId.ifPresent(deletedFileId ->
+                unitOfWork.afterCommit(() -> fileService.deleteById(deletedFileId)));
+        return fileId.isPresent();
     }
 
+    /**
+     * Старый file_id возвращает сам UPDATE, поэтому значению из формы доверять не нужно.
+     * Новый файл, как и в save, сохраняется в одной транзакции с UPDATE. После коммита удаляется
+     * старый файл, а если UPDATE не нашёл запись - новый, на который никто не ссылается.
+     */
     @Override
-    public boolean update(Candidate candidate, FileDto image) {
-        boolean isNewFileEmpty = image.getContent().length == 0;
+    public boolean update(Candidate candidate, FileUploadDto image) {
+        boolean isNewFileEmpty = image.isEmpty();
         if (isNewFileEmpty) {
             return candidateRepository.update(candidate);
         }
-        int oldFileId = candidate.getFileId();
-        saveNewFile(candidate, image);
-        boolean isUpdated = candidateRepository.update(candidate);
-        fileService.deleteById(oldFileId);
-        return isUpdated;
+        StoredFileDto stored = fileService.store(image);
+        try {
+            return unitOfWork.inTransaction(() -> {
+                int fileId = fileService.save(stored).getId();
+                candidate.setFileId(fileId);
+                Optional<Integer> oldFileId = candidateRepository.updateReturningPreviousFileId(candidate);
+                int unusedFileId = oldFileId.orElse(fileId);
+                unitOfWork.afterCommit(() -> fileService.deleteById(unusedFileId));
+                return oldFileId.isPresent();
+            });
+        } catch (RuntimeException e) {
+            fileService.discard(stored);
+            throw e;
+        } finally {
+            fileService.release(stored);
+        }
     }
 
     @Override
@@ -66,4 +103,44 @@ public class SimpleCandidateService implements CandidateService {
     public Collection<Candidate> findAll() {
         return candidateRepository.findAll();
     }
+
+    /**
+     * Запрашивается на одну запись больше размера страницы: по ней видно, есть ли следующая страница.
+     */
+    @Override
+    public PageDto<CandidateSummaryDto> findNextPage(PageCursor cursor, CandidateCriteria criteria,
+                                                     int size) {
+        List<CandidateSummaryDto> rows = candidateRepository.findPageAfter(cursor, criteria, size + 1);
+        return PageDto.ofNext(rows, size, cursor == null, this::toCursor);
+    }
+
+    /**
+     * Если перед курсором записей не осталось, например их удалили, отдаётся первая страница.
+     */
+    @Override
+    public PageDto<CandidateSummaryDto> findPreviousPage(PageCursor cursor, CandidateCriteria criteria,
+                                                         int size) {
+        List<CandidateSummaryDto> rows = candidateRepository.findPageBefore(cursor, criteria, size + 1);
+        if (rows.isEmpty()) {
+            return findNextPage(null, criteria, size);
+        }
+        return PageDto.ofPrevious(rows, size, this::toCursor);
+    }
+
+    /**
+     * Запрашивается на одну запись больше размера страницы: по ней видно, есть ли следующая страница.
+     * Номер страницы приходит из запроса, поэтому смещение ограничивается, а не переполняется.
+     */
+    @Override
+    public SearchPageDto<CandidateSummaryDto> search(String query, int page, int size) {
+        int number = Math.max(page, 0);
+        int offset = (int) Math.min((long) number * size, Integer.MAX_VALUE - size - 1);
+        List<CandidateSummaryDto> rows = candidateRepository.search(query.strip(), offset, size + 1);
+        return SearchPageDto.of(rows, query, number, size);
+    }
+
+    private PageCursor toCursor(CandidateSummaryDto candidate) {
+        return new PageCursor(candidate.getCreationDate(), candidate.getId());
+    }
+
 }
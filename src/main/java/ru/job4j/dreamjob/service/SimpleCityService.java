@@ -1,25 +1,94 @@
 package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.cache.InvalidationListener;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.repository.CityRepository;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Города - маленький и редко меняющийся справочник, поэтому он держится в памяти целиком
+ * и перечитывается по расписанию или по вызову {@link #refresh()}. Снимок неизменяемый
+ * и подменяется одной записью в volatile-поле, так что читатели не блокируются.
+ * Сообщение шины о городе или о потере сообщений тоже перечитывает справочник.
+ */
 @ThreadSafe
 @Service
 public class SimpleCityService implements CityService {
 
+    public static final String ENTITY = "cities";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimpleCityService.class.getName());
+
     private final CityRepository cityRepository;
 
-    public SimpleCityService(CityRepository sql2oCityRepository) {
+    private volatile Dictionary dictionary;
+
+    public SimpleCityService(CityRepository sql2oCityRepository, InvalidationBus invalidationBus) {
         this.cityRepository = sql2oCityRepository;
+        this.dictionary = load();
+        invalidationBus.subscribe(new InvalidationListener() {
+            @Override
+            public void invalidate(String entity, int id) {
+                if (ENTITY.equals(entity)) {
+                    refresh();
+                }
+            }
+
+            @Override
+            public void invalidateAll() {
+                refresh();
+            }
+        });
     }
 
     @Override
     public Collection<City> findAll() {
-        return cityRepository.findAll();
+        return dictionary.cities();
+    }
+
+    @Override
+    public Optional<City> findById(int id) {
+        return Optional.ofNullable(dictionary.byId().get(id));
+    }
+
+    @Override
+    public void refresh() {
+        dictionary = load();
+    }
+
+    /**
+     * При ошибке чтения остаётся прежний снимок справочника.
+     */
+    @Scheduled(initialDelayString = "${city.cache.refresh-interval}",
+            fixedDelayString = "${city.cache.refresh-interval}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.error("Не удалось обновить справочник городов", e);
+        }
+    }
+
+    private Dictionary load() {
+        List<City> cities = List.copyOf(cityRepository.findAll());
+        Map<Integer, City> byId = cities.stream()
+                .collect(Collectors.toUnmodifiableMap(City::getId, Function.identity()));
+        return new Dictionary(cities, byId);
+    }
+
+    private record Dictionary(List<City> cities, Map<Integer, City> byId) {
     }
 
 }
\ No newline at end of file
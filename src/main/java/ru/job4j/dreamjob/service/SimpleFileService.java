@@ -1,91 +1,550 @@
 package ru.job4j.dreamjob.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.cache.LruCache;
+import ru.job4j.dreamjob.cache.LruCacheMetrics;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.StoredFileDto;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.storage.FileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * Метрики кэша регистрируются через MeterBinder: Spring Boot сам привязывает такие бины к реестру.
+ */
 @Service
-public class SimpleFileService implements FileService {
+public class SimpleFileService implements FileService, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimpleFileService.class.getName());
+
+    /**
+     * Примерный размер служебных полей записи кэша, чтобы записи без содержимого тоже имели вес.
+     */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final int PATH_LOCKS = 64;
+
+    private static final int ORIGINAL = 0;
 
     private final FileRepository fileRepository;
-    private final String storageDirectory;
+    private final FileStorage storage;
+    private final StorageLayout layout;
+    private final ImageResizer imageResizer;
+    private final boolean contentAddressed;
+    private final long maxCachedFileSize;
+    private final LruCache<CacheKey, CachedFile> cache;
+    private final Object[] pathLocks = new Object[PATH_LOCKS];
 
     public SimpleFileService(FileRepository sql2oFileRepository,
-                             @Value("${file.directory}") String storageDirectory) {
+                             FileStorage storage,
+                             StorageLayout layout,
+                             ImageResizer imageResizer,
+                             @Value("${file.storage.content-addressed}") boolean contentAddressed,
+                             @Value("${file.cache.max-size}") long maxCacheSize,
+                             @Value("${file.cache.max-entry-size}") long maxCachedFileSize) {
         this.fileRepository = sql2oFileRepository;
-        this.storageDirectory = storageDirectory;
-        createStorageDirectory(storageDirectory);
+        this.storage = storage;
+        this.layout = layout;
+        this.imageResizer = imageResizer;
+        this.contentAddressed = contentAddressed;
+        this.maxCachedFileSize = maxCachedFileSize;
+        this.cache = new LruCache<>(maxCacheSize, CachedFile::getWeight);
+        Arrays.setAll(pathLocks, i -> new Object());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new LruCacheMetrics(cache, "files", Tags.empty()).bindTo(registry);
     }
 
-    private void createStorageDirectory(String path) {
+    @Override
+    public File save(FileDto fileDto) {
+        byte[] content = fileDto.getContent();
+        return save(new FileUploadDto(fileDto.getName(), content.length, new ByteArrayResource(content)));
+    }
+
+    @Override
+    public File save(FileUploadDto upload) {
+        StoredFileDto stored = store(upload);
         try {
-            Files.createDirectories(Path.of(path));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            return save(stored);
+        } catch (RuntimeException e) {
+            discard(stored);
+            throw e;
+        } finally {
+            release(stored);
         }
     }
 
+    /**
+     * Если путь не зависит от содержимого, оно пишется сразу по итоговому ключу: в S3 это один PUT
+     * вместо PUT, COPY и DELETE. Пока нет записи files, на ключ никто не ссылается, поэтому
+     * недописанное содержимое не будет отдано. Иначе ключ зависит от хэша, который известен
+     * только после записи, и содержимое пишется во временный ключ.
+     */
     @Override
-    public File save(FileDto fileDto) {
-        String path = getNewFilePath(fileDto.getName());
-        writeFileBytes(path, fileDto.getContent());
-        return fileRepository.save(new File(fileDto.getName(), path));
+    public StoredFileDto store(FileUploadDto upload) {
+        String key = contentAddressed
+                ? layout.getTemporaryKey()
+                : layout.getKey(UUID.randomUUID() + upload.getName());
+        try {
+            File file = writeFileContent(upload, key);
+            if (contentAddressed) {
+                file.setPath(layout.getKey(file.getHash()));
+                return new StoredFileDto(file, key);
+            }
+            file.setPath(key);
+            return new StoredFileDto(file, null);
+        } catch (RuntimeException e) {
+            deleteQuietly(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Содержимое из временного ключа переносится под блокировкой файла, которая в БД держится
+     * до коммита внешней транзакции: удаление последней ссылки на той же ноде или на другой
+     * не сотрёт содержимое, запись files для которого ещё не зафиксирована.
+     */
+    @Override
+    public File save(StoredFileDto stored) {
+        File file = stored.getFile();
+        if (!stored.isTemporary()) {
+            return fileRepository.save(file);
+        }
+        return withFileLock(file.getPath(), () -> {
+            moveToStorage(stored.getTemporaryKey(), file.getPath());
+            return fileRepository.save(file);
+        });
+    }
+
+    /**
+     * Содержимое по хэшу может быть общим с другими записями files, поэтому удаляется только
+     * содержимое с уникальным путём. Перенесённое содержимое без ссылок уберёт OrphanFileCollector.
+     */
+    @Override
+    public void discard(StoredFileDto stored) {
+        if (!stored.isTemporary()) {
+            deleteQuietly(stored.getFile().getPath());
+        }
+    }
+
+    @Override
+    public void release(StoredFileDto stored) {
+        if (stored.isTemporary()) {
+            deleteQuietly(stored.getTemporaryKey());
+        }
     }
 
-    private String getNewFilePath(String sourceName) {
-        return storageDirectory + java.io.File.separator + UUID.randomUUID() + sourceName;
+    /**
+     * Пока идёт перенос в подкаталоги, файл может уже лежать по новому пути, а запись files
+     * ещё указывает на старый. Поэтому при отсутствии файла проверяется его место в другой раскладке.
+     */
+    private String resolvePath(String path) {
+        if (storage.exists(path)) {
+            return path;
+        }
+        String otherPath = layout.getOtherLayoutKey(path);
+        return storage.exists(otherPath) ? otherPath : path;
     }
 
-    private void writeFileBytes(String path, byte[] content) {
+    /**
+     * Содержимое копируется потоком в ключ хранилища, попутно считаются размер и SHA-256.
+     * Путь к файлу заполняет вызывающий.
+     */
+    private File writeFileContent(FileUploadDto upload, String key) {
         try {
-            Files.write(Path.of(path), content);
-        } catch (IOException e) {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            long size;
+            try (InputStream input = new DigestInputStream(upload.getInputStream(), digest)) {
+                size = storage.write(key, input, upload.getSize());
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            return new File(upload.getName(), null, size, hash);
+        } catch (IOException | NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Файл атомарно переименовывается, поэтому недописанный файл никогда не окажется по итоговому пути.
+     * Если такое содержимое уже хранится, новая копия не нужна.
+     */
+    private void moveToStorage(String temporary, String target) {
+        if (storage.exists(target)) {
+            return;
+        }
+        storage.move(temporary, target);
+    }
+
+    /**
+     * Сохранение, удаление и перенос одного файла сериализуются: иначе удаление последней ссылки
+     * могло бы стереть содержимое, которое параллельная загрузка того же файла уже сочла сохранённым.
+     * Блокировка берётся по имени файла, которое одинаково в обеих раскладках: сначала внутри JVM,
+     * затем в БД до коммита работы, чтобы загрузки и удаления на разных нодах тоже не пересекались.
+     */
+    private <T> T withFileLock(String path, Supplier<T> work) {
+        String fileName = layout.getFileName(path);
+        synchronized (pathLocks[Math.floorMod(fileName.hashCode(), pathLocks.length)]) {
+            return fileRepository.inFileLock(fileName, work);
+        }
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            storage.delete(path);
+        } catch (RuntimeException e) {
+            LOG.warn("Не удалось удалить недописанный или временный файл {}", path, e);
+        }
+    }
+
     @Override
     public Optional<FileDto> getFileById(int id) {
-        Optional<File> fileOptional = fileRepository.findById(id);
-        if (fileOptional.isEmpty()) {
+        Optional<CachedFile> cachedOptional = findCachedFile(new CacheKey(id, ORIGINAL));
+        if (cachedOptional.isEmpty()) {
             return Optional.empty();
         }
-        byte[] content = readFileAsBytes(fileOptional.get().getPath());
-        return Optional.of(new FileDto(fileOptional.get().getName(), content));
+        CachedFile cached = cachedOptional.get();
+        byte[] content = cached.isContentCached()
+                ? cached.getContent()
+                : readContent(storage.read(resolvePath(cached.getFile().getPath())));
+        return Optional.of(new FileDto(cached.getFile().getName(), content));
+    }
+
+    /**
+     * Метаданные берутся из кэша, а если файла там нет - из files, но содержимое не читается.
+     */
+    @Override
+    public Optional<File> findFileById(int id) {
+        CachedFile cached = cache.getIfPresent(new CacheKey(id, ORIGINAL));
+        return cached == null ? fileRepository.findById(id) : Optional.of(cached.getFile());
+    }
+
+    @Override
+    public Optional<File> findFileById(int id, int width) {
+        return findFileById(id).map(file -> toVariant(file, imageResizer.normalizeWidth(width)));
+    }
+
+    @Override
+    public Optional<FileResourceDto> getFileResourceById(int id) {
+        return toFileResource(findCachedFile(new CacheKey(id, ORIGINAL)));
+    }
+
+    /**
+     * Уменьшенная копия создаётся при первом запросе, сохраняется в хранилище рядом с оригиналом
+     * и дальше отдаётся через тот же кэш, что и оригиналы. Одновременные запросы одной копии
+     * объединяются кэшем, так что изображение уменьшается один раз.
+     * Если файл не изображение или уже не шире запрошенного, отдаётся оригинал.
+     */
+    @Override
+    public Optional<FileResourceDto> getFileResourceById(int id, int width) {
+        return toFileResource(findCachedFile(new CacheKey(id, imageResizer.normalizeWidth(width))));
+    }
+
+    private Optional<FileResourceDto> toFileResource(Optional<CachedFile> cachedOptional) {
+        return cachedOptional.map(cached -> new FileResourceDto(
+                cached.getFile().getName(), cached.getFile().getPath(), toResource(cached)));
+    }
+
+    private Optional<CachedFile> findCachedFile(CacheKey key) {
+        return Optional.ofNullable(cache.get(key, this::loadFile));
     }
 
-    private byte[] readFileAsBytes(String path) {
+    private CachedFile loadFile(CacheKey key) {
+        if (key.width() == ORIGINAL) {
+            return fileRepository.findById(key.id())
+                    .map(file -> readCachedFile(file, resolvePath(file.getPath())))
+                    .orElse(null);
+        }
+        CachedFile original = findCachedFile(new CacheKey(key.id(), ORIGINAL)).orElse(null);
+        if (original == null) {
+            return null;
+        }
+        File variant = toVariant(original.getFile(), key.width());
+        String variantPath = variant.getPath();
+        if (!storage.exists(variantPath)) {
+            String format = imageResizer.getFormat(original.getFile().getName());
+            Optional<byte[]> resized = imageResizer.resize(toResource(original), key.width(), format);
+            if (resized.isEmpty()) {
+                return original;
+            }
+            writeVariant(variantPath, resized.get());
+        }
+        return readCachedFile(variant, variantPath);
+    }
+
+    /**
+     * Копия, как и загруженный файл, сначала пишется во временный ключ: параллельный запрос
+     * не увидит по итоговому ключу недописанное изображение. Одинаковые копии от двух запросов
+     * перезаписывают друг друга целиком.
+     */
+    private void writeVariant(String variantPath, byte[] content) {
+        String temporary = layout.getTemporaryKey();
+        try {
+            storage.write(temporary, new ByteArrayInputStream(content), content.length);
+            storage.move(temporary, variantPath);
+        } finally {
+            deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Имя и путь уменьшенной копии. Имя получает расширение формата копии, если оно другое.
+     */
+    private File toVariant(File file, int width) {
+        String format = imageResizer.getFormat(file.getName());
+        String variantName = file.getName().toLowerCase(Locale.ROOT).endsWith("." + format)
+                ? file.getName()
+                : file.getName() + "." + format;
+        File variant = new File(variantName, layout.getVariantKey(file.getPath(), width, format));
+        variant.setId(file.getId());
+        return variant;
+    }
+
+    private CachedFile readCachedFile(File file, String path) {
+        Resource resource = storage.read(path);
+        try {
+            long lastModified = resource.lastModified();
+            byte[] content = resource.contentLength() <= maxCachedFileSize
+                    ? resource.getContentAsByteArray()
+                    : null;
+            return new CachedFile(file, content, lastModified);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Resource toResource(CachedFile cached) {
+        if (cached.isContentCached()) {
+            return cached.toResource();
+        }
+        return storage.read(resolvePath(cached.getFile().getPath()));
+    }
+
+    private byte[] readContent(Resource resource) {
         try {
-            return Files.readAllBytes(Path.of(path));
+            return resource.getContentAsByteArray();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Содержимое удаляется только вместе с последней записью files, которая на него ссылается.
+     * Кэш сбрасывается до удаления и ещё раз после коммита: загрузка, начатая между ними,
+     * успела бы прочитать запись и положить в кэш уже удалённый файл.
+     */
     @Override
     public boolean deleteById(int id) {
+        invalidate(id);
         Optional<File> fileOptional = fileRepository.findById(id);
         if (fileOptional.isEmpty()) {
             return false;
         }
-        deleteFile(fileOptional.get().getPath());
-        return fileRepository.deleteById(id);
+        File file = fileOptional.get();
+        String path = file.getPath();
+        try {
+            return withFileLock(path, () -> {
+                boolean isDeleted = fileRepository.deleteById(id);
+                if (isDeleted && fileRepository.countByPath(path) == 0) {
+                    storage.delete(path);
+                    deleteVariants(path, file.getName());
+                }
+                return isDeleted;
+            });
+        } finally {
+            invalidate(id);
+        }
     }
 
-    private void deleteFile(String path) {
+    private void invalidate(int id) {
+        cache.invalidate(new CacheKey(id, ORIGINAL));
+        imageResizer.getWidths().forEach(width -> cache.invalidate(new CacheKey(id, width)));
+    }
+
+    private void deleteVariants(String path, String fileName) {
+        String format = imageResizer.getFormat(fileName);
+        imageResizer.getWidths().forEach(width -> storage.delete(layout.getVariantKey(path, width, format)));
+    }
+
+    /**
+     * Содержимое в хранилище никому не принадлежит, если ни его ключ, ни место в другой раскладке,
+     * ни, для уменьшенной копии, ключ оригинала не встречаются в files.path.
+     */
+    public boolean isOrphanBlob(String key) {
+        return !findOrphanBlobs(List.of(key)).isEmpty();
+    }
+
+    /**
+     * То же, что isOrphanBlob, для пачки ключей: все возможные пути проверяются одним запросом.
+     *
+     * @return ключи без записей files
+     */
+    public Set<String> findOrphanBlobs(Collection<String> keys) {
+        Map<String, List<String>> referencePaths = new HashMap<>();
+        for (String key : keys) {
+            referencePaths.put(key, getReferencePaths(key));
+        }
+        Set<String> existing = fileRepository.findExistingPaths(referencePaths.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toSet()));
+        return referencePaths.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().noneMatch(existing::contains))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private List<String> getReferencePaths(String key) {
+        List<String> paths = new ArrayList<>(List.of(key, layout.getOtherLayoutKey(key)));
+        layout.getOriginalKey(key).ifPresent(original -> {
+            paths.add(original);
+            paths.add(layout.getOtherLayoutKey(original));
+        });
+        return paths;
+    }
+
+    /**
+     * Проверка повторяется под блокировкой файла: параллельная загрузка могла только что
+     * сохранить запись files на это содержимое.
+     *
+     * @return true, если содержимое удалено
+     */
+    public boolean deleteOrphanBlob(String key) {
+        return withFileLock(key, () -> {
+            if (!isOrphanBlob(key)) {
+                return false;
+            }
+            storage.delete(key);
+            return true;
+        });
+    }
+
+    /**
+     * Переносит файлы, лежащие прямо в file.directory, в подкаталоги и переписывает files.path.
+     * Записи обходятся пачками по возрастанию id, приложение при этом продолжает работать.
+     * Уменьшенные копии не переносятся: они удаляются и при следующем запросе создаются заново.
+     *
+     * @return количество перенесённых файлов
+     */
+    public int migrateToShardedLayout(int batchSize) {
+        int migrated = 0;
+        int lastId = 0;
+        List<File> batch = fileRepository.findAllAfterId(lastId, batchSize);
+        while (!batch.isEmpty()) {
+            for (File file : batch) {
+                if (layout.isFlatKey(file.getPath()) && moveToShardedPath(file)) {
+                    migrated++;
+                }
+                lastId = file.getId();
+            }
+            LOG.info("Перенесено в подкаталоги файлов: {}, последний id: {}", migrated, lastId);
+            batch = fileRepository.findAllAfterId(lastId, batchSize);
+        }
+        cache.invalidateAll();
+        return migrated;
+    }
+
+    private boolean moveToShardedPath(File file) {
+        String flatPath = file.getPath();
+        String shardedPath = layout.getShardedKey(layout.getFileName(flatPath));
         try {
-            Files.deleteIfExists(Path.of(path));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            return withFileLock(flatPath, () -> {
+                if (storage.exists(flatPath)) {
+                    if (storage.exists(shardedPath)) {
+                        storage.delete(flatPath);
+                    } else {
+                        storage.move(flatPath, shardedPath);
+                    }
+                }
+                deleteVariants(flatPath, file.getName());
+                return fileRepository.updatePath(flatPath, shardedPath) > 0;
+            });
+        } catch (RuntimeException e) {
+            LOG.error("Не удалось перенести файл {}", flatPath, e);
+            return false;
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Ключ кэша: id файла и ширина копии, 0 - оригинал.
+     */
+    private record CacheKey(int id, int width) {
+    }
+
+    /**
+     * Запись кэша: метаданные файла и, если файл не больше file.cache.max-entry-size, его содержимое.
+     * Для крупных файлов кэшируются только метаданные, а содержимое читается из хранилища потоком.
+     */
+    private static class CachedFile {
+
+        private final File file;
+        private final byte[] content;
+        private final long lastModified;
+
+        public CachedFile(File file, byte[] content, long lastModified) {
+            this.file = file;
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public boolean isContentCached() {
+            return content != null;
+        }
+
+        public long getWeight() {
+            return ENTRY_OVERHEAD + (content == null ? 0 : content.length);
+        }
+
+        public Resource toResource() {
+            return new ByteArrayResource(content) {
+                @Override
+                public long lastModified() {
+                    return lastModified;
+                }
+            };
+        }
+
+    }
+
+}
@@ -2,12 +2,19 @@ package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Service;
-import ru.job4j.dreamjob.dto.FileDto;
-import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.StoredFileDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.repository.VacancyRepository;
+import ru.job4j.dreamjob.repository.UnitOfWork;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @ThreadSafe
@@ -16,45 +23,75 @@ public class SimpleVacancyService implements VacancyService {
 
     private final VacancyRepository vacancyRepository;
     private final FileService fileService;
+    private final UnitOfWork unitOfWork;
 
-    public SimpleVacancyService(VacancyRepository sql2oVacancyRepository, FileService fileService) {
+    public SimpleVacancyService(VacancyRepository sql2oVacancyRepository, FileService fileService,
+                               UnitOfWork unitOfWork) {
         this.vacancyRepository = sql2oVacancyRepository;
         this.fileService = fileService;
+        this.unitOfWork = unitOfWork;
     }
 
+    /**
+     * Содержимое файла пишется в хранилище до транзакции, чтобы загрузка не держала соединение пула.
+     * Запись files и вакансия сохраняются в одной транзакции на одном соединении и откатываются
+     * вместе, а при откате ненужное содержимое удаляется.
+     */
     @Override
-    public Vacancy save(Vacancy vacancy, FileDto image) {
-        saveNewFile(vacancy, image);
-        return vacancyRepository.save(vacancy);
-    }
-
-    private void saveNewFile(Vacancy vacancy, FileDto image) {
-        File file = fileService.save(image);
-        vacancy.setFileId(file.getId());
+    public Vacancy save(Vacancy vacancy, FileUploadDto image) {
+        StoredFileDto stored = fileService.store(image);
+        try {
+            return unitOfWork.inTransaction(() -> {
+                vacancy.setFileId(fileService.save(stored).getId());
+                return vacancyRepository.save(vacancy);
+            });
+        } catch (RuntimeException e) {
+            fileService.discard(stored);
+            throw e;
+        } finally {
+            fileService.release(stored);
+        }
     }
 
+    /**
+     * Запись удаляется одним запросом, который заодно возвращает её file_id.
+     * Файл удаляется только после коммита: при откате запись должна ссылаться на существующий файл.
+     */
     @Override
     public boolean deleteById(int id) {
-        Optional<Vacancy> fileOptional = findById(id);
-        if (fileOptional.isEmpty()) {
-            return false;
-        }
-        boolean isDeleted = vacancyRepository.deleteById(id);
-        fileService.deleteById(fileOptional.get().getFileId());
-        return isDeleted;
+        Optional<Integer> fileId = vacancyRepository.deleteByIdReturningFileId(id);
+        fileId.ifPresent(deletedFileId ->
+                unitOfWork.afterCommit(() -> fileService.deleteById(deletedFileId)));
+        return fileId.isPresent();
     }
 
+    /**
+     * Старый file_id возвращает сам UPDATE, поэтому значению из формы доверять не нужно.
+     * Новый файл, как и в save, сохраняется в одной транзакции с UPDATE. После коммита удаляется
+     * старый файл, а если UPDATE не нашёл запись - новый, на который никто не ссылается.
+     */
     @Override
-    public boolean update(Vacancy vacancy, FileDto image) {
-        boolean isNewFileEmpty = image.getContent().length == 0;
+    public boolean update(Vacancy vacancy, FileUploadDto image) {
+        boolean isNewFileEmpty = image.isEmpty();
         if (isNewFileEmpty) {
             return vacancyRepository.update(vacancy);
         }
-        int oldFileId = vacancy.getFileId();
-        saveNewFile(vacancy, image);
-        boolean isUpdated = vacancyRepository.update(vacancy);
-        fileService.deleteById(oldFileId);
-        return isUpdated;
+        StoredFileDto stored = fileService.store(image);
+        try {
+            return unitOfWork.inTransaction(() -> {
+                int fileId = fileService.save(stored).getId();
+                vacancy.setFileId(fileId);
+                Optional<Integer> oldFileId = vacancyRepository.updateReturningPreviousFileId(vacancy);
+                int unusedFileId = oldFileId.orElse(fileId);
+                unitOfWork.afterCommit(() -> fileService.deleteById(unusedFileId));
+                return oldFileId.isPresent();
+            });
+        } catch (RuntimeException e) {
+            fileService.discard(stored);
+            throw e;
+        } finally {
+            fileService.release(stored);
+        }
     }
 
     @Override
@@ -67,4 +104,42 @@ public class SimpleVacancyService implements VacancyService {
         return vacancyRepository.findAll();
     }
 
+    /**
+     * Запрашивается на одну запись больше размера страницы: по ней видно, есть ли следующая страница.
+     */
+    @Override
+    public PageDto<VacancySummaryDto> findNextPage(PageCursor cursor, VacancyCriteria criteria, int size) {
+        List<VacancySummaryDto> rows = vacancyRepository.findPageAfter(cursor, criteria, size + 1);
+        return PageDto.ofNext(rows, size, cursor == null, this::toCursor);
+    }
+
+    /**
+     * Если перед курсором записей не осталось, например их удалили, отдаётся первая страница.
+     */
+    @Override
+    public PageDto<VacancySummaryDto> findPreviousPage(PageCursor cursor, VacancyCriteria criteria,
+                                                       int size) {
+        List<VacancySummaryDto> rows = vacancyRepository.findPageBefore(cursor, criteria, size + 1);
+        if (rows.isEmpty()) {
+            return findNextPage(null, criteria, size);
+        }
+        return PageDto.ofPrevious(rows, size, this::toCursor);
+    }
+
+    /**
+     * Запрашивается на одну запись больше размера страницы: по ней видно, есть ли следующая страница.
+     * Номер страницы приходит из запроса, поэтому смещение ограничивается, а не переполняется.
+     */
+    @Override
+    public SearchPageDto<VacancySummaryDto> search(String query, int page, int size) {
+        int number = Math.max(page, 0);
+        int offset = (int) Math.min((long) number * size, Integer.MAX_VALUE - size - 1);
+        List<VacancySummaryDto> rows = vacancyRepository.search(query.strip(), offset, size + 1);
+        return SearchPageDto.of(rows, query, number, size);
+    }
+
+    private PageCursor toCursor(VacancySummaryDto vacancy) {
+        return new PageCursor(vacancy.getCreationDate(), vacancy.getId());
+    }
+
 }
\ No newline at end of file
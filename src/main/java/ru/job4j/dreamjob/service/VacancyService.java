@@ -1,6 +1,11 @@
 package ru.job4j.dreamjob.service;
 
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
@@ -8,14 +13,26 @@ import java.util.Optional;
 
 public interface VacancyService {
 
-    Vacancy save(Vacancy vacancy, FileDto image);
+    Vacancy save(Vacancy vacancy, FileUploadDto image);
 
     boolean deleteById(int id);
 
-    boolean update(Vacancy vacancy, FileDto image);
+    boolean update(Vacancy vacancy, FileUploadDto image);
 
     Optional<Vacancy> findById(int id);
 
     Collection<Vacancy> findAll();
 
+    /**
+     * Страница, следующая за курсором, а без курсора - первая страница.
+     */
+    PageDto<VacancySummaryDto> findNextPage(PageCursor cursor, VacancyCriteria criteria, int size);
+
+    PageDto<VacancySummaryDto> findPreviousPage(PageCursor cursor, VacancyCriteria criteria, int size);
+
+    /**
+     * Страница результатов поиска, упорядоченных по релевантности. Страницы нумеруются с нуля.
+     */
+    SearchPageDto<VacancySummaryDto> search(String query, int page, int size);
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.job4j.dreamjob.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище содержимого файлов. Ключ - значение files.path, реализация сама решает,
+ * где и как хранить байты. Ошибки ввода-вывода пробрасываются как RuntimeException.
+ */
+public interface FileStorage {
+
+    /**
+     * Сохраняет содержимое потока под ключом, заменяя прежнее. Поток не закрывается.
+     *
+     * @param size размер содержимого в байтах, если он известен заранее, иначе -1
+     * @return количество записанных байт
+     */
+    long write(String key, InputStream content, long size);
+
+    /**
+     * Хранилище не обращается к содержимому, пока его не начнут читать из ресурса.
+     * Чтение отсутствующего ключа завершается FileNotFoundException.
+     */
+    Resource read(String key);
+
+    boolean exists(String key);
+
+    void move(String sourceKey, String targetKey);
+
+    void delete(String key);
+
+    /**
+     * Все ключи, начинающиеся с prefix. Поток нужно закрыть после использования.
+     */
+    Stream<String> list(String prefix);
+
+}
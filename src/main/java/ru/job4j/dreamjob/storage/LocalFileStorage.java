@@ -0,0 +1,80 @@
+package ru.job4j.dreamjob.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileStorage implements FileStorage {
+
+    @Override
+    public long write(String key, InputStream content, long size) {
+        try {
+            Path path = Path.of(key);
+            Files.createDirectories(path.getParent());
+            return Files.copy(content, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Resource read(String key) {
+        return new FileSystemResource(Path.of(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(Path.of(key));
+    }
+
+    /**
+     * Внутри одной файловой системы перенос атомарен: по новому пути файл появляется сразу целиком.
+     */
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        try {
+            Path target = Path.of(targetKey);
+            Files.createDirectories(target.getParent());
+            Files.move(Path.of(sourceKey), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(Path.of(key));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Stream<String> list(String prefix) {
+        Path directory = Path.of(prefix);
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        try {
+            return Files.walk(directory)
+                    .filter(Files::isRegularFile)
+                    .map(Path::toString);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
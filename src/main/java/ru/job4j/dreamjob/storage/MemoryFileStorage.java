@@ -0,0 +1,123 @@
+package ru.job4j.dreamjob.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в памяти процесса для тестов и бенчмарков: файловая система не участвует в замерах.
+ */
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "memory")
+public class MemoryFileStorage implements FileStorage {
+
+    private final Map<String, StoredContent> contents = new ConcurrentHashMap<>();
+
+    @Override
+    public long write(String key, InputStream content, long size) {
+        try {
+            byte[] bytes = content.readAllBytes();
+            contents.put(key, new StoredContent(bytes, System.currentTimeMillis()));
+            return bytes.length;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Resource read(String key) {
+        return new MemoryResource(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return contents.containsKey(key);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        StoredContent content = contents.remove(sourceKey);
+        if (content == null) {
+            throw new RuntimeException(new FileNotFoundException(sourceKey));
+        }
+        contents.put(targetKey, content);
+    }
+
+    @Override
+    public void delete(String key) {
+        contents.remove(key);
+    }
+
+    @Override
+    public Stream<String> list(String prefix) {
+        return contents.keySet().stream()
+                .filter(key -> key.startsWith(prefix));
+    }
+
+    private static class StoredContent {
+
+        private final byte[] bytes;
+        private final long lastModified;
+
+        StoredContent(byte[] bytes, long lastModified) {
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    private class MemoryResource extends AbstractResource {
+
+        private final String key;
+
+        MemoryResource(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean exists() {
+            return contents.containsKey(key);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(getContent().bytes);
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return getContent().bytes.length;
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return getContent().lastModified;
+        }
+
+        @Override
+        public String getDescription() {
+            return "memory [" + key + "]";
+        }
+
+        private StoredContent getContent() throws FileNotFoundException {
+            StoredContent content = contents.get(key);
+            if (content == null) {
+                throw new FileNotFoundException(key);
+            }
+            return content;
+        }
+
+    }
+
+}
@@ -0,0 +1,389 @@
+package ru.job4j.dreamjob.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в S3-совместимом объектном хранилище (AWS S3, MinIO, Ceph и т.п.).
+ * Запросы подписываются AWS Signature Version 4, адресация объектов - path-style: endpoint/bucket/key.
+ */
+@ThreadSafe
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+public class S3FileStorage implements FileStorage {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final DateTimeFormatter AMZ_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final String endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final Clock clock;
+
+    /**
+     * @param connectTimeout сколько миллисекунд ждать установления соединения
+     * @param requestTimeout сколько миллисекунд ждать ответа на запрос, иначе зависший endpoint
+     *                       держал бы поток запроса бесконечно
+     */
+    public S3FileStorage(@Value("${file.storage.s3.endpoint}") String endpoint,
+                         @Value("${file.storage.s3.bucket}") String bucket,
+                         @Value("${file.storage.s3.region}") String region,
+                         @Value("${file.storage.s3.access-key}") String accessKey,
+                         @Value("${file.storage.s3.secret-key}") String secretKey,
+                         @Value("${file.storage.s3.connect-timeout}") long connectTimeout,
+                         @Value("${file.storage.s3.request-timeout}") long requestTimeout) {
+        this(endpoint, bucket, region, accessKey, secretKey,
+                new Timeouts(Duration.ofMillis(connectTimeout), Duration.ofMillis(requestTimeout)),
+                Clock.systemUTC());
+    }
+
+    public S3FileStorage(String endpoint, String bucket, String region, String accessKey,
+                         String secretKey, Timeouts timeouts, Clock clock) {
+        this.client = HttpClient.newBuilder().connectTimeout(timeouts.connect()).build();
+        this.requestTimeout = timeouts.request();
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.clock = clock;
+    }
+
+    /**
+     * S3 не принимает загрузку без Content-Length, поэтому размер должен быть известен заранее.
+     */
+    @Override
+    public long write(String key, InputStream content, long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Размер содержимого для S3 должен быть известен заранее");
+        }
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> content), size);
+        HttpRequest request = objectRequest("PUT", key, Map.of()).PUT(body).build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        checkSuccess(response, key);
+        return size;
+    }
+
+    @Override
+    public Resource read(String key) {
+        return new S3Resource(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return head(key).statusCode() == 200;
+    }
+
+    /**
+     * В S3 нет переименования: объект копируется на стороне сервера, затем исходный удаляется.
+     */
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        String copySource = "/" + encodeSegment(bucket) + "/" + encodePath(sourceKey);
+        HttpRequest request = objectRequest("PUT", targetKey, Map.of("x-amz-copy-source", copySource))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        checkSuccess(send(request, HttpResponse.BodyHandlers.ofString()), sourceKey);
+        delete(sourceKey);
+    }
+
+    @Override
+    public void delete(String key) {
+        HttpRequest request = objectRequest("DELETE", key, Map.of()).DELETE().build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            checkSuccess(response, key);
+        }
+    }
+
+    /**
+     * Ключи читаются постранично запросами ListObjectsV2: следующая страница запрашивается,
+     * только когда поток дочитал предыдущую.
+     */
+    @Override
+    public Stream<String> list(String prefix) {
+        return Stream.iterate(listPage(prefix, null), Objects::nonNull,
+                        page -> page.nextToken() == null ? null : listPage(prefix, page.nextToken()))
+                .flatMap(page -> page.keys().stream());
+    }
+
+    private ListPage listPage(String prefix, String continuationToken) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("list-type", "2");
+        parameters.put("prefix", prefix);
+        if (continuationToken != null) {
+            parameters.put("continuation-token", continuationToken);
+        }
+        HttpRequest request = signedRequest("GET", "/" + encodeSegment(bucket), parameters, Map.of())
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("S3 вернул " + response.statusCode() + " для списка " + prefix);
+        }
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(response.body()));
+            NodeList keyNodes = document.getElementsByTagName("Key");
+            List<String> keys = new ArrayList<>(keyNodes.getLength());
+            for (int i = 0; i < keyNodes.getLength(); i++) {
+                keys.add(keyNodes.item(i).getTextContent());
+            }
+            NodeList truncated = document.getElementsByTagName("IsTruncated");
+            NodeList token = document.getElementsByTagName("NextContinuationToken");
+            boolean isTruncated = truncated.getLength() > 0
+                    && Boolean.parseBoolean(truncated.item(0).getTextContent());
+            String nextToken = isTruncated && token.getLength() > 0 ? token.item(0).getTextContent() : null;
+            return new ListPage(keys, nextToken);
+        } catch (IOException | ParserConfigurationException | SAXException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private HttpResponse<Void> head(String key) {
+        HttpRequest request = objectRequest("HEAD", key, Map.of())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpRequest.Builder objectRequest(String method, String key, Map<String, String> amzHeaders) {
+        String canonicalUri = "/" + encodeSegment(bucket) + "/" + encodePath(key);
+        return signedRequest(method, canonicalUri, Map.of(), amzHeaders);
+    }
+
+    private HttpRequest.Builder signedRequest(String method, String canonicalUri,
+                                              Map<String, String> parameters,
+                                              Map<String, String> amzHeaders) {
+        String canonicalQuery = new TreeMap<>(parameters).entrySet().stream()
+                .map(entry -> encodeSegment(entry.getKey()) + "=" + encodeSegment(entry.getValue()))
+                .collect(Collectors.joining("&"));
+        String query = canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery;
+        URI uri = URI.create(endpoint + canonicalUri + query);
+        String amzDate = AMZ_DATE_FORMAT.format(clock.instant());
+        String date = amzDate.substring(0, 8);
+
+        Map<String, String> headers = new TreeMap<>(amzHeaders);
+        headers.put("host", uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort());
+        headers.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", amzDate);
+        String canonicalHeaders = headers.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = String.join("\n",
+                method, canonicalUri, canonicalQuery, canonicalHeaders, signedHeaders, UNSIGNED_PAYLOAD);
+
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String stringToSign = String.join("\n", ALGORITHM, amzDate, scope, sha256Hex(canonicalRequest));
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        String authorization = ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Authorization", authorization);
+        headers.forEach((name, value) -> {
+            if (!"host".equals(name)) {
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        try {
+            return sendChecked(request, handler);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private <T> HttpResponse<T> sendChecked(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    private void checkSuccess(HttpResponse<?> response, String key) {
+        if (response.statusCode() / 100 != 2) {
+            throw new RuntimeException("S3 вернул " + response.statusCode() + " для ключа " + key
+                    + ": " + response.body());
+        }
+    }
+
+    private static String encodePath(String key) {
+        return Arrays.stream(key.split("/"))
+                .map(S3FileStorage::encodeSegment)
+                .collect(Collectors.joining("/"));
+    }
+
+    /**
+     * Кодирование по RFC 3986, которого требует SigV4: URLEncoder кодирует пробел как "+"
+     * и не трогает "*", а "~" кодирует.
+     */
+    private static String encodeSegment(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ожидание установления соединения и ответа на отдельный запрос.
+     */
+    public record Timeouts(Duration connect, Duration request) {
+    }
+
+    private record ListPage(List<String> keys, String nextToken) {
+    }
+
+    /**
+     * Метаданные объекта запрашиваются HEAD-запросом один раз на ресурс, содержимое - GET-запросом.
+     */
+    private class S3Resource extends AbstractResource {
+
+        private final String key;
+        private volatile HttpResponse<Void> metadata;
+
+        S3Resource(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean exists() {
+            return getMetadata().statusCode() == 200;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            HttpRequest request = objectRequest("GET", key, Map.of()).GET().build();
+            HttpResponse<InputStream> response =
+                    sendChecked(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() == 200) {
+                return response.body();
+            }
+            response.body().close();
+            if (response.statusCode() == 404) {
+                throw new FileNotFoundException(getDescription());
+            }
+            throw new IOException("S3 вернул " + response.statusCode() + " для " + getDescription());
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return getExistingMetadata().headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return getExistingMetadata().headers().firstValue("Last-Modified")
+                    .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME))
+                    .map(ZonedDateTime::toInstant)
+                    .map(Instant::toEpochMilli)
+                    .orElse(0L);
+        }
+
+        @Override
+        public String getDescription() {
+            return "s3 [" + bucket + "/" + key + "]";
+        }
+
+        private HttpResponse<Void> getExistingMetadata() throws FileNotFoundException {
+            HttpResponse<Void> response = getMetadata();
+            if (response.statusCode() != 200) {
+                throw new FileNotFoundException(getDescription());
+            }
+            return response;
+        }
+
+        private HttpResponse<Void> getMetadata() {
+            if (metadata == null) {
+                metadata = head(key);
+            }
+            return metadata;
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package ru.job4j.dreamjob.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Раскладка ключей хранилища: где лежат оригиналы, временные загрузки и уменьшенные копии.
+ */
+@ThreadSafe
+@Component
+public class StorageLayout {
+
+    private static final Pattern VARIANT_KEY = Pattern.compile("(.+)\\.w\\d+\\.[A-Za-z0-9]+");
+
+    private final String storageDirectory;
+    private final boolean sharded;
+
+    public StorageLayout(@Value("${file.directory}") String storageDirectory,
+                         @Value("${file.storage.sharded}") boolean sharded) {
+        this.storageDirectory = storageDirectory;
+        this.sharded = sharded;
+    }
+
+    /**
+     * Общий префикс всех ключей хранилища.
+     */
+    public String getRootKey() {
+        return storageDirectory;
+    }
+
+    public String getKey(String fileName) {
+        return sharded ? getShardedKey(fileName) : getFlatKey(fileName);
+    }
+
+    public String getFlatKey(String fileName) {
+        return storageDirectory + File.separator + fileName;
+    }
+
+    /**
+     * Файлы раскладываются по двум уровням подкаталогов по первым символам md5 от имени файла,
+     * например files/3f/a2/имя. Так в одном каталоге остаётся не больше нескольких сотен файлов.
+     */
+    public String getShardedKey(String fileName) {
+        String shard = DigestUtils.md5DigestAsHex(fileName.getBytes(StandardCharsets.UTF_8));
+        return String.join(File.separator,
+                storageDirectory, shard.substring(0, 2), shard.substring(2, 4), fileName);
+    }
+
+    public boolean isFlatKey(String key) {
+        return Path.of(storageDirectory).equals(Path.of(key).getParent());
+    }
+
+    /**
+     * Место того же файла в другой раскладке: для плоского ключа - в подкаталогах, и наоборот.
+     */
+    public String getOtherLayoutKey(String key) {
+        String fileName = getFileName(key);
+        return isFlatKey(key) ? getShardedKey(fileName) : getFlatKey(fileName);
+    }
+
+    public String getFileName(String key) {
+        return Path.of(key).getFileName().toString();
+    }
+
+    public String getTemporaryKey() {
+        return getFlatKey("upload-" + UUID.randomUUID() + ".tmp");
+    }
+
+    /**
+     * Уменьшенная копия лежит рядом с оригиналом: files/3f/a2/имя.w128.png.
+     */
+    public String getVariantKey(String key, int width, String format) {
+        return key + ".w" + width + "." + format;
+    }
+
+    /**
+     * Ключ оригинала, если ключ похож на ключ уменьшенной копии.
+     */
+    public Optional<String> getOriginalKey(String key) {
+        Matcher matcher = VARIANT_KEY.matcher(key);
+        return matcher.matches() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+}
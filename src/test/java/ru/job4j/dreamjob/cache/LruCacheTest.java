@@ -0,0 +1,121 @@
+package ru.job4j.dreamjob.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+
+    @Test
+    void whenGetTwiceThenLoadOnceAndCountHit() {
+        LruCache<Integer, String> cache = new LruCache<>(100, String::length);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, key -> "value" + loads.incrementAndGet());
+        String value = cache.get(1, key -> "value" + loads.incrementAndGet());
+
+        assertThat(value).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenWeightExceededThenLeastRecentlyUsedEvicted() {
+        LruCache<Integer, String> cache = new LruCache<>(10, String::length);
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        cache.getIfPresent(1);
+
+        cache.put(3, "cccc");
+
+        assertThat(cache.getIfPresent(1)).isEqualTo("aaaa");
+        assertThat(cache.getIfPresent(2)).isNull();
+        assertThat(cache.getIfPresent(3)).isEqualTo("cccc");
+        assertThat(cache.getWeight()).isEqualTo(8);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenValueHeavierThanCacheThenNotStored() {
+        LruCache<Integer, String> cache = new LruCache<>(3, String::length);
+
+        String value = cache.get(1, key -> "long value");
+
+        assertThat(value).isEqualTo("long value");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenLoaderReturnsNullThenNothingCached() {
+        LruCache<Integer, String> cache = new LruCache<>(100, String::length);
+
+        assertThat(cache.get(1, key -> null)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenInvalidateThenLoadAgain() {
+        LruCache<Integer, String> cache = new LruCache<>(100, String::length);
+        cache.get(1, key -> "old");
+
+        cache.invalidate(1);
+
+        assertThat(cache.get(1, key -> "new")).isEqualTo("new");
+        assertThat(cache.getWeight()).isEqualTo(3);
+    }
+
+    @Test
+    void whenLoaderFailsThenExceptionThrownAndNothingCached() {
+        LruCache<Integer, String> cache = new LruCache<>(100, String::length);
+
+        assertThatThrownBy(() -> cache.get(1, key -> {
+            throw new IllegalStateException("load failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.get(1, key -> "value")).isEqualTo("value");
+    }
+
+    @Test
+    void whenConcurrentMissesThenSingleLoad() throws Exception {
+        LruCache<Integer, String> cache = new LruCache<>(100, String::length);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = pool.submit(() -> cache.get(1, key -> {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                await(release);
+                return "value";
+            }));
+            loadStarted.await();
+            Future<String> second = pool.submit(() -> cache.get(1, key -> "other" + loads.incrementAndGet()));
+            Future<String> third = pool.submit(() -> cache.get(1, key -> "other" + loads.incrementAndGet()));
+            TimeUnit.MILLISECONDS.sleep(100);
+            release.countDown();
+
+            assertThat(first.get()).isEqualTo("value");
+            assertThat(second.get()).isEqualTo("value");
+            assertThat(third.get()).isEqualTo("value");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.job4j.dreamjob.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstrumentedDataSourceTest {
+
+    private InstrumentedDataSource dataSource;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void initDataSource() {
+        ConnectionPoolProperties pool = new ConnectionPoolProperties();
+        pool.setMaxTotal(4);
+        dataSource = new DatasourceConfiguration()
+                .connectionPool("jdbc:h2:mem:pool", "sa", "", pool);
+        registry = new SimpleMeterRegistry();
+        dataSource.bindTo(registry);
+    }
+
+    @AfterEach
+    public void closeDataSource() throws Exception {
+        dataSource.close();
+    }
+
+    @Test
+    public void whenConnectionBorrowedThenActiveGaugeCountsIt() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+            assertThat(registry.get("datasource.pool.active").gauge().value()).isEqualTo(1);
+        }
+        assertThat(registry.get("datasource.pool.active").gauge().value()).isEqualTo(0);
+        assertThat(registry.get("datasource.pool.idle").gauge().value()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.get("datasource.pool.waiters").gauge().value()).isEqualTo(0);
+        assertThat(registry.get("datasource.pool.max").gauge().value()).isEqualTo(4);
+    }
+
+    @Test
+    public void whenConnectionReturnedThenWaitAndUsageRecordedOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(registry.get("datasource.pool.wait").timer().count()).isEqualTo(1);
+        assertThat(registry.get("datasource.pool.usage").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenConnectionHeldLongerThanThresholdThenReportedOnceWhileHeld() throws Exception {
+        InstrumentedDataSource slowSweep =
+                new InstrumentedDataSource("test", 500, TimeUnit.HOURS.toMillis(1));
+        slowSweep.setUrl("jdbc:h2:mem:hold");
+        try (slowSweep; Connection connection = slowSweep.getConnection()) {
+            assertThat(slowSweep.reportLongHolds()).isZero();
+            TimeUnit.MILLISECONDS.sleep(600);
+
+            assertThat(slowSweep.reportLongHolds()).isEqualTo(1);
+            assertThat(slowSweep.reportLongHolds()).isZero();
+            assertThat(connection.isValid(1)).isTrue();
+        }
+    }
+
+    @Test
+    public void whenPoolReclaimsAbandonedConnectionThenNoLongerTracked() throws Exception {
+        InstrumentedDataSource abandoning =
+                new InstrumentedDataSource("test", 1500, TimeUnit.HOURS.toMillis(1));
+        abandoning.setUrl("jdbc:h2:mem:abandoned");
+        abandoning.setMaxTotal(2);
+        abandoning.setRemoveAbandonedOnBorrow(true);
+        abandoning.setRemoveAbandonedTimeout(1);
+        abandoning.bindTo(registry);
+        try (abandoning) {
+            Connection abandoned = abandoning.getConnection();
+            TimeUnit.MILLISECONDS.sleep(1100);
+            abandoning.getConnection().close();
+            TimeUnit.MILLISECONDS.sleep(500);
+
+            assertThat(abandoned.isClosed()).isTrue();
+            assertThat(abandoning.reportLongHolds()).isZero();
+            assertThat(registry.get("datasource.pool.usage").tags("pool", "test").timer().count())
+                    .isEqualTo(2);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.job4j.dreamjob.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import static java.time.LocalDateTime.now;
@@ -14,7 +15,11 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
 import org.springframework.ui.Model;
 import org.springframework.web.multipart.MultipartFile;
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.CandidateSummaryDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.service.CandidateService;
@@ -25,31 +30,47 @@ class CandidateControllerTest {
     private CandidateService candidateService;
     private CityService cityService;
     private CandidateController candidateController;
+    private final CandidateCriteria criteria = new CandidateCriteria();
     private MultipartFile testFile;
 
     @BeforeEach
     public void initService() {
         candidateService = mock(CandidateService.class);
         cityService = mock(CityService.class);
-        candidateController = new CandidateController(candidateService, cityService);
+        candidateController = new CandidateController(candidateService, cityService, 20);
         testFile = new MockMultipartFile("testFile.img", new byte[] {1, 2, 3});
     }
 
     @Test
     void whenRequestCandidateListPageThenGetPageWithCandidates() {
-        Candidate candidate1 = new Candidate(1, "test1", "desc1", now(), 1, 2);
-        Candidate candidate2 = new Candidate(2, "test2", "desc2", now(), 3, 4);
-        List<Candidate> expectedCandidates = List.of(candidate1, candidate2);
-        when(candidateService.findAll()).thenReturn(expectedCandidates);
+        CandidateSummaryDto candidate1 = new CandidateSummaryDto(1, "test1", now(), 2);
+        CandidateSummaryDto candidate2 = new CandidateSummaryDto(2, "test2", now(), 4);
+        List<CandidateSummaryDto> expectedCandidates = List.of(candidate1, candidate2);
+        when(candidateService.findNextPage(null, criteria, 20))
+                .thenReturn(new PageDto<>(expectedCandidates, null, null));
 
         Model model = new ConcurrentModel();
-        String view = candidateController.getAll(model);
+        String view = candidateController.getAll(model, null, null, criteria);
         var actualCandidates = model.getAttribute("candidates");
 
         assertThat(view).isEqualTo("candidates/list");
         assertThat(actualCandidates).isEqualTo(expectedCandidates);
     }
 
+    @Test
+    void whenRequestPreviousPageThenFindPreviousPageBeforeCursor() {
+        CandidateSummaryDto candidate = new CandidateSummaryDto(1, "test1", now(), 2);
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2023, 3, 21, 10, 15), 7);
+        PageDto<CandidateSummaryDto> page = new PageDto<>(List.of(candidate), null, cursor);
+        when(candidateService.findPreviousPage(cursor, criteria, 20)).thenReturn(page);
+
+        Model model = new ConcurrentModel();
+        candidateController.getAll(model, null, "2023-03-21T10:15_7", criteria);
+
+        assertThat(model.getAttribute("page")).isSameAs(page);
+        assertThat(model.getAttribute("candidates")).isEqualTo(List.of(candidate));
+    }
+
     @Test
     void whenRequestCandidateCreationPageThenGetPageWithCities() {
         City city1 = new City(1, "Москва");
@@ -123,16 +144,17 @@ class CandidateControllerTest {
     @Test
     void whenPostCandidateWithFileThenSameDataAndRedirectToCandidatesPage() throws Exception {
         Candidate candidate = new Candidate(1, "test1", "desc1", now(), 1, 2);
-        FileDto fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        FileUploadDto fileDto = new FileUploadDto(
+                testFile.getOriginalFilename(), testFile.getSize(), testFile);
         ArgumentCaptor<Candidate> candidateArgumentCaptor = ArgumentCaptor.forClass(Candidate.class);
-        ArgumentCaptor<FileDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
+        ArgumentCaptor<FileUploadDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileUploadDto.class);
         when(candidateService.save(candidateArgumentCaptor.capture(), fileDtoArgumentCaptor.capture()))
                 .thenReturn(candidate);
 
         Model model = new ConcurrentModel();
         String view = candidateController.create(candidate, testFile, model);
         Candidate actualCandidate = candidateArgumentCaptor.getValue();
-        FileDto actualFileDto = fileDtoArgumentCaptor.getValue();
+        FileUploadDto actualFileDto = fileDtoArgumentCaptor.getValue();
 
         assertThat(view).isEqualTo("redirect:/candidates");
         assertThat(actualCandidate).isEqualTo(candidate);
@@ -155,16 +177,17 @@ class CandidateControllerTest {
     @Test
     void whenUpdateCandidateWithFileThenSameDataAndRedirectToCandidatesPage() throws Exception {
         Candidate candidate = new Candidate(1, "test1", "desc1", now(), 1, 2);
-        FileDto fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        FileUploadDto fileDto = new FileUploadDto(
+                testFile.getOriginalFilename(), testFile.getSize(), testFile);
         ArgumentCaptor<Candidate> candidateArgumentCaptor = ArgumentCaptor.forClass(Candidate.class);
-        ArgumentCaptor<FileDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
+        ArgumentCaptor<FileUploadDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileUploadDto.class);
         when(candidateService.update(candidateArgumentCaptor.capture(), fileDtoArgumentCaptor.capture()))
                 .thenReturn(true);
 
         Model model = new ConcurrentModel();
         String view = candidateController.updateCandidate(candidate, testFile, model);
         Candidate actualCandidate = candidateArgumentCaptor.getValue();
-        FileDto actualFileDto = fileDtoArgumentCaptor.getValue();
+        FileUploadDto actualFileDto = fileDtoArgumentCaptor.getValue();
 
         assertThat(view).isEqualTo("redirect:/candidates");
         assertThat(actualCandidate).isEqualTo(candidate);
@@ -1,49 +1,181 @@
 package ru.job4j.dreamjob.controller;
 
-import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.web.multipart.MultipartFile;
-import ru.job4j.dreamjob.dto.FileDto;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.service.FileService;
 
 class FileControllerTest {
 
     private FileService fileService;
     private FileController fileController;
-    private MultipartFile testFile;
+    private File metadata;
+    private FileResourceDto testFile;
+    private WebRequest request;
 
     @BeforeEach
     public void initService() {
         fileService = mock(FileService.class);
         fileController = new FileController(fileService);
-        testFile = new MockMultipartFile("testFile.img", new byte[] {1, 2, 3});
+        Resource resource = new ByteArrayResource(new byte[] {1, 2, 3, 4, 5});
+        testFile = new FileResourceDto("testFile.png", "files/testFile.png", resource);
+        metadata = new File("testFile.png", "files/testFile.png");
+        metadata.setId(1);
+        when(fileService.findFileById(any(Integer.class))).thenReturn(Optional.of(metadata));
+        request = new ServletWebRequest(new MockHttpServletRequest());
     }
 
     @Test
-    void whenRequestFileByIdThenGetResponseEntity() throws IOException {
-        FileDto fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
-        when(fileService.getFileById(any(Integer.class))).thenReturn(Optional.of(fileDto));
+    void whenRequestFileByIdThenGetResponseEntity() {
+        when(fileService.getFileResourceById(any(Integer.class))).thenReturn(Optional.of(testFile));
 
-        ResponseEntity<?> actualContent = fileController.getById(any(Integer.class));
+        ResponseEntity<?> actualContent = fileController.getById(1, null, request);
 
-        assertThat(actualContent).isEqualTo(ResponseEntity.ok(fileDto.getContent()));
+        assertThat(actualContent.getStatusCode().value()).isEqualTo(200);
+        assertThat(actualContent.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_PNG);
+        assertThat(actualContent.getBody()).isSameAs(testFile.getResource());
+        assertThat(actualContent.getHeaders().getETag()).isNotNull();
+        assertThat(actualContent.getHeaders().getCacheControl()).contains("immutable");
     }
 
     @Test
     void whenRequestFileByWrongIdThenGetResponseEntityNotFound() {
-        when(fileService.getFileById(any(Integer.class))).thenReturn(Optional.empty());
+        when(fileService.findFileById(any(Integer.class))).thenReturn(Optional.empty());
 
-        ResponseEntity<?> actualContent = fileController.getById(any(Integer.class));
+        ResponseEntity<?> actualContent = fileController.getById(1, null, request);
 
         assertThat(actualContent).isEqualTo(ResponseEntity.notFound().build());
     }
 
-}
\ No newline at end of file
+    @Test
+    void whenRequestFileThenGetContentWithLength() throws Exception {
+        when(fileService.getFileResourceById(any(Integer.class))).thenReturn(Optional.of(testFile));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+
+        mockMvc.perform(get("/files/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+                .andExpect(content().bytes(new byte[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    void whenRequestFileRangeThenGetPartialContent() throws Exception {
+        when(fileService.getFileResourceById(any(Integer.class))).thenReturn(Optional.of(testFile));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+
+        mockMvc.perform(get("/files/1").header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/5"))
+                .andExpect(content().bytes(new byte[] {2, 3, 4}));
+    }
+
+    @Test
+    void whenRequestFileWithSameETagThenGetNotModified() throws Exception {
+        when(fileService.getFileResourceById(any(Integer.class))).thenReturn(Optional.of(testFile));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+        String eTag = mockMvc.perform(get("/files/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/files/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void whenRequestFileWithOtherETagThenGetContent() throws Exception {
+        when(fileService.getFileResourceById(any(Integer.class))).thenReturn(Optional.of(testFile));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+
+        mockMvc.perform(get("/files/1").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    void whenRequestFileWithIfModifiedSinceThenGetNotModifiedWithoutReadingContent() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 21 Mar 2023 00:00:00 GMT");
+
+        ResponseEntity<?> actualContent =
+                fileController.getById(1, null, new ServletWebRequest(servletRequest));
+
+        assertThat(actualContent.getStatusCode().value()).isEqualTo(304);
+        assertThat(actualContent.getBody()).isNull();
+        verify(fileService, never()).getFileResourceById(any(Integer.class));
+    }
+
+    @Test
+    void whenRequestFileWidthThenGetVariantWithOwnETag() throws Exception {
+        Resource variantResource = new ByteArrayResource(new byte[] {1, 2});
+        FileResourceDto variant =
+                new FileResourceDto("testFile.png", "files/testFile.png.w128.png", variantResource);
+        File variantMetadata = new File("testFile.png", "files/testFile.png.w128.png");
+        variantMetadata.setId(1);
+        when(fileService.getFileResourceById(1)).thenReturn(Optional.of(testFile));
+        when(fileService.findFileById(1, 128)).thenReturn(Optional.of(variantMetadata));
+        when(fileService.getFileResourceById(1, 128)).thenReturn(Optional.of(variant));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+        String originalETag = mockMvc.perform(get("/files/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String variantETag = mockMvc.perform(get("/files/1").param("w", "128"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[] {1, 2}))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(variantETag).isNotEqualTo(originalETag);
+    }
+
+    @Test
+    void whenRequestWidthsOfSameVariantThenSameETag() throws Exception {
+        File variantMetadata = new File("testFile.png", "files/testFile.png.w128.png");
+        variantMetadata.setId(1);
+        when(fileService.findFileById(1, 100)).thenReturn(Optional.of(variantMetadata));
+        when(fileService.findFileById(1, 128)).thenReturn(Optional.of(variantMetadata));
+        when(fileService.getFileResourceById(any(Integer.class), any(Integer.class)))
+                .thenReturn(Optional.of(testFile));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+
+        String first = mockMvc.perform(get("/files/1").param("w", "100"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/files/1").param("w", "128").header(HttpHeaders.IF_NONE_MATCH, first))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenResizePoolOverloadedThenServiceUnavailable() throws Exception {
+        when(fileService.findFileById(1, 128)).thenReturn(Optional.of(metadata));
+        when(fileService.getFileResourceById(1, 128)).thenThrow(new RejectedExecutionException());
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+
+        mockMvc.perform(get("/files/1").param("w", "128"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.job4j.dreamjob.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import static java.time.LocalDateTime.now;
@@ -12,7 +13,12 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
 import org.springframework.ui.Model;
 import org.springframework.web.multipart.MultipartFile;
-import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
@@ -23,31 +29,69 @@ class VacancyControllerTest {
     private VacancyService vacancyService;
     private CityService cityService;
     private VacancyController vacancyController;
+    private final VacancyCriteria criteria = new VacancyCriteria();
     private MultipartFile testFile;
 
     @BeforeEach
     public void initService() {
         vacancyService = mock(VacancyService.class);
         cityService = mock(CityService.class);
-        vacancyController = new VacancyController(vacancyService, cityService);
+        vacancyController = new VacancyController(vacancyService, cityService, 20);
         testFile = new MockMultipartFile("testFile.img", new byte[] {1, 2, 3});
     }
 
     @Test
     void whenRequestVacancyListPageThenGetPageWithVacancies() {
-        Vacancy vacancy1 = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        Vacancy vacancy2 = new Vacancy(2, "test2", "desc2", now(), false, 3, 4);
-        List<Vacancy> expectedVacancies = List.of(vacancy1, vacancy2);
-        when(vacancyService.findAll()).thenReturn(expectedVacancies);
+        VacancySummaryDto vacancy1 = new VacancySummaryDto(1, "test1", now(), true, 2);
+        VacancySummaryDto vacancy2 = new VacancySummaryDto(2, "test2", now(), false, 4);
+        List<VacancySummaryDto> expectedVacancies = List.of(vacancy1, vacancy2);
+        when(vacancyService.findNextPage(null, criteria, 20))
+                .thenReturn(new PageDto<>(expectedVacancies, null, null));
 
         Model model = new ConcurrentModel();
-        String view = vacancyController.getAll(model);
+        String view = vacancyController.getAll(model, null, null, criteria);
         var actualVacancies = model.getAttribute("vacancies");
 
         assertThat(view).isEqualTo("vacancies/list");
         assertThat(actualVacancies).isEqualTo(expectedVacancies);
     }
 
+    @Test
+    void whenRequestPreviousPageThenFindPreviousPageBeforeCursor() {
+        VacancySummaryDto vacancy = new VacancySummaryDto(1, "test1", now(), true, 2);
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2023, 3, 21, 10, 15), 7);
+        PageDto<VacancySummaryDto> page = new PageDto<>(List.of(vacancy), null, cursor);
+        when(vacancyService.findPreviousPage(cursor, criteria, 20)).thenReturn(page);
+
+        Model model = new ConcurrentModel();
+        vacancyController.getAll(model, null, "2023-03-21T10:15_7", criteria);
+
+        assertThat(model.getAttribute("page")).isSameAs(page);
+        assertThat(model.getAttribute("vacancies")).isEqualTo(List.of(vacancy));
+    }
+
+    @Test
+    void whenSearchThenListWithFoundVacancies() {
+        VacancySummaryDto vacancy = new VacancySummaryDto(1, "Java", now(), true, 2);
+        SearchPageDto<VacancySummaryDto> result = new SearchPageDto<>(List.of(vacancy), "java", 1, false);
+        when(vacancyService.search("java", 1, 20)).thenReturn(result);
+
+        Model model = new ConcurrentModel();
+        String view = vacancyController.search(model, "java", 1);
+
+        assertThat(view).isEqualTo("vacancies/list");
+        assertThat(model.getAttribute("search")).isSameAs(result);
+        assertThat(model.getAttribute("vacancies")).isEqualTo(List.of(vacancy));
+    }
+
+    @Test
+    void whenSearchBlankThenRedirectToList() {
+        String view = vacancyController.search(new ConcurrentModel(), " ", 0);
+
+        assertThat(view).isEqualTo("redirect:/vacancies");
+        verify(vacancyService, never()).search(any(), anyInt(), anyInt());
+    }
+
     @Test
     void whenRequestVacancyCreationPageThenGetPageWithCities() {
         City city1 = new City(1, "Москва");
@@ -121,16 +165,17 @@ class VacancyControllerTest {
     @Test
     void whenPostVacancyWithFileThenSameDataAndRedirectToVacanciesPage() throws Exception {
         Vacancy vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        FileDto fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        FileUploadDto fileDto = new FileUploadDto(
+                testFile.getOriginalFilename(), testFile.getSize(), testFile);
         ArgumentCaptor<Vacancy> vacancyArgumentCaptor = ArgumentCaptor.forClass(Vacancy.class);
-        ArgumentCaptor<FileDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
+        ArgumentCaptor<FileUploadDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileUploadDto.class);
         when(vacancyService.save(vacancyArgumentCaptor.capture(), fileDtoArgumentCaptor.capture()))
                 .thenReturn(vacancy);
 
         Model model = new ConcurrentModel();
         String view = vacancyController.create(vacancy, testFile, model);
         Vacancy actualVacancy = vacancyArgumentCaptor.getValue();
-        FileDto actualFileDto = fileDtoArgumentCaptor.getValue();
+        FileUploadDto actualFileDto = fileDtoArgumentCaptor.getValue();
 
         assertThat(view).isEqualTo("redirect:/vacancies");
         assertThat(actualVacancy).isEqualTo(vacancy);
@@ -153,16 +198,17 @@ class VacancyControllerTest {
     @Test
     void whenUpdateVacancyWithFileThenSameDataAndRedirectToVacanciesPage() throws Exception {
         Vacancy vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        FileDto fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        FileUploadDto fileDto = new FileUploadDto(
+                testFile.getOriginalFilename(), testFile.getSize(), testFile);
         ArgumentCaptor<Vacancy> vacancyArgumentCaptor = ArgumentCaptor.forClass(Vacancy.class);
-        ArgumentCaptor<FileDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
+        ArgumentCaptor<FileUploadDto> fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileUploadDto.class);
         when(vacancyService.update(vacancyArgumentCaptor.capture(), fileDtoArgumentCaptor.capture()))
                 .thenReturn(true);
 
         Model model = new ConcurrentModel();
         String view = vacancyController.updateVacancy(vacancy, testFile, model);
         Vacancy actualVacancy = vacancyArgumentCaptor.getValue();
-        FileDto actualFileDto = fileDtoArgumentCaptor.getValue();
+        FileUploadDto actualFileDto = fileDtoArgumentCaptor.getValue();
 
         assertThat(view).isEqualTo("redirect:/vacancies");
         assertThat(actualVacancy).isEqualTo(vacancy);
@@ -0,0 +1,120 @@
+package ru.job4j.dreamjob.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.model.Vacancy;
+
+class CachingVacancyRepositoryTest {
+
+    private final Vacancy vacancy = new Vacancy(1, "title", "description",
+            LocalDateTime.of(2023, 3, 1, 10, 0), true, 1, 1);
+    private VacancyRepository database;
+    private UnitOfWork unitOfWork;
+    private InProcessInvalidationBus bus;
+
+    @BeforeEach
+    public void initMocks() {
+        database = mock(VacancyRepository.class);
+        unitOfWork = mock(UnitOfWork.class);
+        when(unitOfWork.onPrimary(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        bus = new InProcessInvalidationBus();
+        when(database.findById(1)).thenReturn(Optional.of(vacancy));
+    }
+
+    @Test
+    void whenFindByIdTwiceThenDatabaseQueriedOnceAndCopiesReturned() {
+        CachingVacancyRepository repository = cachingRepository(60000);
+
+        Vacancy first = repository.findById(1).orElseThrow();
+        first.setTitle("changed by caller");
+        Vacancy second = repository.findById(1).orElseThrow();
+
+        assertThat(second.getTitle()).isEqualTo("title");
+        verify(database, times(1)).findById(1);
+    }
+
+    @Test
+    void whenUpdateThenNextFindByIdReloads() {
+        CachingVacancyRepository repository = cachingRepository(60000);
+        repository.findById(1);
+
+        repository.update(vacancy);
+        repository.findById(1);
+
+        verify(database, times(2)).findById(1);
+    }
+
+    @Test
+    void whenOtherNodeUpdatesThenNextFindByIdReloads() {
+        CachingVacancyRepository repository = cachingRepository(60000);
+        repository.findById(1);
+
+        bus.publish(Sql2oCandidateRepository.ENTITY, 1);
+        repository.findById(1);
+        bus.publish(Sql2oVacancyRepository.ENTITY, 1);
+        repository.findById(1);
+
+        verify(database, times(2)).findById(1);
+    }
+
+    @Test
+    void whenMessagesLostThenEverythingReloads() {
+        CachingVacancyRepository repository = cachingRepository(60000);
+        repository.findById(1);
+
+        bus.publishAll();
+        repository.findById(1);
+
+        verify(database, times(2)).findById(1);
+    }
+
+    @Test
+    void whenTtlElapsedThenReloads() {
+        CachingVacancyRepository repository = cachingRepository(0);
+
+        repository.findById(1);
+        repository.findById(1);
+
+        verify(database, times(2)).findById(1);
+    }
+
+    @Test
+    void whenInTransactionThenCacheBypassed() {
+        when(unitOfWork.isInTransaction()).thenReturn(true);
+        CachingVacancyRepository repository = cachingRepository(60000);
+
+        repository.findById(1);
+        repository.findById(1);
+
+        verify(database, times(2)).findById(1);
+    }
+
+    @Test
+    void whenHitAndMissThenHitRatioReported() {
+        CachingVacancyRepository repository = cachingRepository(60000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+
+        repository.findById(1);
+        repository.findById(1);
+
+        assertThat(registry.get("cache.hit.ratio").tag("cache", "vacancies").gauge().value()).isEqualTo(0.5);
+    }
+
+    private CachingVacancyRepository cachingRepository(long ttl) {
+        return new CachingVacancyRepository(database, unitOfWork, bus, 10, ttl);
+    }
+
+}
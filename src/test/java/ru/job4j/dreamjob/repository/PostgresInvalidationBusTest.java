@@ -0,0 +1,94 @@
+package ru.job4j.dreamjob.repository;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.job4j.dreamjob.cache.InvalidationListener;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+
+/**
+ * Нужен работающий PostgreSQL: mvn test -Dpostgres.url=jdbc:postgresql://127.0.0.1:5432/dreamjob
+ * -Dpostgres.username=postgres -Dpostgres.password=...
+ */
+@EnabledIfSystemProperty(named = "postgres.url", matches = ".+")
+class PostgresInvalidationBusTest {
+
+    private final String url = System.getProperty("postgres.url");
+    private final String username = System.getProperty("postgres.username", "postgres");
+    private final String password = System.getProperty("postgres.password", "");
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private BasicDataSource dataSource;
+    private PostgresInvalidationBus sender;
+    private PostgresInvalidationBus receiver;
+
+    @BeforeEach
+    public void startBuses() throws InterruptedException {
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        dataSource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(configuration.databaseClient(dataSource));
+        sender = bus(unitOfWork);
+        receiver = bus(unitOfWork);
+        receiver.subscribe(new InvalidationListener() {
+            @Override
+            public void invalidate(String entity, int id) {
+                received.add(entity + ":" + id);
+            }
+
+            @Override
+            public void invalidateAll() {
+                received.add("*");
+            }
+        });
+        receiver.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!receiver.isListening() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(receiver.isListening()).isTrue();
+        assertThat(received.poll()).isEqualTo("*");
+        assertThat(received).isEmpty();
+    }
+
+    @AfterEach
+    public void stopBuses() throws Exception {
+        receiver.stop();
+        dataSource.close();
+    }
+
+    @Test
+    void whenPublishOutsideTransactionThenOtherNodeReceives() throws InterruptedException {
+        sender.publish("vacancies", 7);
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("vacancies:7");
+    }
+
+    @Test
+    void whenTransactionRolledBackThenNothingReceived() throws InterruptedException {
+        Sql2oUnitOfWork unitOfWork =
+                new Sql2oUnitOfWork(new DatasourceConfiguration().databaseClient(dataSource));
+        PostgresInvalidationBus transactional = bus(unitOfWork);
+        try {
+            unitOfWork.inTransaction(() -> {
+                transactional.publish("vacancies", 8);
+                throw new IllegalStateException("rollback");
+            });
+        } catch (IllegalStateException ignored) {
+            sender.publish("vacancies", 9);
+        }
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("vacancies:9");
+    }
+
+    private PostgresInvalidationBus bus(Sql2oUnitOfWork unitOfWork) {
+        return new PostgresInvalidationBus(unitOfWork, url, username, password, "dreamjob_cache_test", 100);
+    }
+
+}
@@ -0,0 +1,150 @@
+package ru.job4j.dreamjob.repository;
+
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.Sql2o;
+import org.sql2o.data.Row;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.dto.CandidateCriteria;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+
+/**
+ * Проверяет, что горячие запросы репозиториев идут по индексам, а не полным просмотром таблиц.
+ * Текст запросов берётся из самих репозиториев, параметры передаются так же, как в них.
+ * На PostgreSQL последовательное сканирование запрещается на время EXPLAIN: на маленьких
+ * тестовых таблицах планировщик иначе выбирает его даже при наличии индекса.
+ */
+class QueryPlanTest {
+
+    private static final PageCursor CURSOR = new PageCursor(LocalDateTime.of(2023, 3, 21, 10, 15), 7);
+
+    private static final int LIMIT = 20;
+
+    private static Sql2o sql2o;
+
+    @BeforeAll
+    static void initDatabaseClient() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = QueryPlanTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        String url = properties.getProperty("datasource.url");
+        String username = properties.getProperty("datasource.username");
+        String password = properties.getProperty("datasource.password");
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        DataSource dataSource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(dataSource);
+    }
+
+    static Stream<HotQuery> hotQueries() {
+        return Stream.of(
+                new HotQuery("vacancy by id", Sql2oVacancyRepository.FIND_BY_ID,
+                        query -> query.addParameter("id", 1)),
+                new HotQuery("candidate by id", Sql2oCandidateRepository.FIND_BY_ID,
+                        query -> query.addParameter("id", 1)),
+                vacancyPage("first vacancy page",
+                        Sql2oVacancyRepository.pageAfter(null, new VacancyCriteria()),
+                        Sql2oVacancyRepository.NEWEST_FIRST),
+                vacancyPage("next vacancy page",
+                        Sql2oVacancyRepository.pageAfter(CURSOR, new VacancyCriteria()),
+                        Sql2oVacancyRepository.NEWEST_FIRST),
+                vacancyPage("visible vacancies",
+                        Sql2oVacancyRepository.pageAfter(null, new VacancyCriteria(null, true, null, null)),
+                        Sql2oVacancyRepository.NEWEST_FIRST),
+                vacancyPage("vacancies of city",
+                        Sql2oVacancyRepository.pageAfter(null, new VacancyCriteria(1, null, null, null)),
+                        Sql2oVacancyRepository.NEWEST_FIRST),
+                vacancyPage("filtered vacancies", Sql2oVacancyRepository.pageAfter(null,
+                                new VacancyCriteria(1, true, LocalDate.of(2023, 3, 14), null)),
+                        Sql2oVacancyRepository.NEWEST_FIRST),
+                candidatePage("first candidate page",
+                        Sql2oCandidateRepository.pageAfter(null, new CandidateCriteria()),
+                        Sql2oCandidateRepository.NEWEST_FIRST),
+                candidatePage("previous candidate page",
+                        Sql2oCandidateRepository.pageBefore(CURSOR, new CandidateCriteria()),
+                        Sql2oCandidateRepository.OLDEST_FIRST),
+                candidatePage("candidates of city",
+                        Sql2oCandidateRepository.pageAfter(null, new CandidateCriteria(1, null, null)),
+                        Sql2oCandidateRepository.NEWEST_FIRST),
+                new HotQuery("file by id", Sql2oFileRepository.FIND_BY_ID,
+                        query -> query.addParameter("id", 1)),
+                new HotQuery("files by path", Sql2oFileRepository.COUNT_BY_PATH,
+                        query -> query.addParameter("path", "files/a.png")),
+                new HotQuery("existing paths", Sql2oFileRepository.FIND_EXISTING_PATHS,
+                        query -> query.addParameter("paths", List.of("files/a.png", "files/b.png"))),
+                new HotQuery("files after id", Sql2oFileRepository.FIND_ALL_AFTER_ID,
+                        query -> query.addParameter("id", 0).addParameter("limit", 100)),
+                new HotQuery("unreferenced files", Sql2oFileRepository.FIND_UNREFERENCED_AFTER_ID,
+                        query -> query.addParameter("id", 0).addParameter("limit", 100)),
+                new HotQuery("login", Sql2oUserRepository.FIND_BY_EMAIL_AND_PASSWORD,
+                        query -> query.addParameter("email", "a@b.c").addParameter("password", "p"))
+        );
+    }
+
+    private static HotQuery vacancyPage(String name, SqlCriteria where, String orderBy) {
+        return new HotQuery(name, Sql2oVacancyRepository.pageQuery(where, orderBy),
+                query -> where.bind(query).addParameter("limit", LIMIT));
+    }
+
+    private static HotQuery candidatePage(String name, SqlCriteria where, String orderBy) {
+        return new HotQuery(name, Sql2oCandidateRepository.pageQuery(where, orderBy),
+                query -> where.bind(query).addParameter("limit", LIMIT));
+    }
+
+    @ParameterizedTest
+    @MethodSource("hotQueries")
+    void whenExplainHotQueryThenNoSequentialScan(HotQuery hotQuery) throws SQLException {
+        assertThat(explain(hotQuery))
+                .doesNotContainIgnoringCase("tableScan")
+                .doesNotContainIgnoringCase("Seq Scan");
+    }
+
+    private String explain(HotQuery hotQuery) throws SQLException {
+        try (Connection connection = sql2o.beginTransaction()) {
+            try {
+                String product = connection.getJdbcConnection().getMetaData().getDatabaseProductName();
+                if (SqlDialect.of(product) == SqlDialect.POSTGRESQL) {
+                    connection.createQuery("SET LOCAL enable_seqscan = off").executeUpdate();
+                }
+                Query query = hotQuery.binder().apply(connection.createQuery("EXPLAIN " + hotQuery.sql()));
+                StringJoiner plan = new StringJoiner(System.lineSeparator());
+                for (Row row : query.executeAndFetchTable().rows()) {
+                    plan.add(row.getString(0));
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Запрос репозитория и привязка его параметров. Имя служит подписью параметризованного теста.
+     */
+    record HotQuery(String name, String sql, UnaryOperator<Query> binder) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
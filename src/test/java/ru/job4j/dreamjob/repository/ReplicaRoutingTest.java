@@ -0,0 +1,188 @@
+package ru.job4j.dreamjob.repository;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Connection;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.filter.ReplicaFreshnessFilter;
+import ru.job4j.dreamjob.model.City;
+
+/**
+ * Основная БД - тестовая testdb, реплика - отдельная БД в памяти со своим справочником городов,
+ * поэтому по результату видно, откуда пришло чтение. Клиент вне beginRequest - текущий поток.
+ */
+class ReplicaRoutingTest {
+
+    private static Sql2o primary;
+    private static Sql2o replica;
+
+    @BeforeAll
+    static void initDatabases() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = ReplicaRoutingTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        primary = configuration.databaseClient(configuration.connectionPool(
+                properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"),
+                properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties()));
+        replica = configuration.databaseClient(configuration.connectionPool(
+                properties.getProperty("datasource.replica.url"),
+                properties.getProperty("datasource.replica.username"),
+                properties.getProperty("datasource.replica.password"),
+                new ConnectionPoolProperties()));
+        try (Connection connection = replica.open()) {
+            connection.createQuery("CREATE TABLE IF NOT EXISTS cities(id SERIAL PRIMARY KEY, name VARCHAR)")
+                    .executeUpdate();
+            connection.createQuery("DELETE FROM cities").executeUpdate();
+            connection.createQuery("INSERT INTO cities(name) VALUES ('Реплика')").executeUpdate();
+        }
+    }
+
+    private static boolean readFromReplica(Sql2oUnitOfWork unitOfWork) {
+        return new Sql2oCityRepository(unitOfWork).findAll().stream()
+                .map(City::getName)
+                .anyMatch("Реплика"::equals);
+    }
+
+    private static void write(Sql2oUnitOfWork unitOfWork) {
+        unitOfWork.withConnection(connection ->
+                connection.createQuery("SELECT 1").executeScalar(Integer.class));
+    }
+
+    @Test
+    void whenNoRecentWritesThenReadFromReplica() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+
+        assertThat(readFromReplica(unitOfWork)).isTrue();
+    }
+
+    @Test
+    void whenWrittenRecentlyThenSameClientReadsFromPrimary() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+
+        write(unitOfWork);
+
+        assertThat(unitOfWork.isReplicaReadable()).isFalse();
+        assertThat(readFromReplica(unitOfWork)).isFalse();
+    }
+
+    @Test
+    void whenOtherClientWroteThenReadFromReplica() throws Exception {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+        Thread otherClient = new Thread(() -> write(unitOfWork));
+        otherClient.start();
+        otherClient.join();
+
+        assertThat(readFromReplica(unitOfWork)).isTrue();
+    }
+
+    @Test
+    void whenWrittenInRequestThenClientGetsMomentToReadFromPrimaryUntil() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+        AtomicLong primaryUntil = new AtomicLong();
+
+        unitOfWork.beginRequest(0, primaryUntil::set);
+        try {
+            write(unitOfWork);
+        } finally {
+            unitOfWork.endRequest();
+        }
+
+        assertThat(primaryUntil.get()).isGreaterThan(System.currentTimeMillis());
+        assertThat(readFromReplica(unitOfWork)).isTrue();
+        unitOfWork.beginRequest(primaryUntil.get(), until -> { });
+        try {
+            assertThat(readFromReplica(unitOfWork)).isFalse();
+        } finally {
+            unitOfWork.endRequest();
+        }
+    }
+
+    @Test
+    void whenClientSendsDistantMomentThenLimitedByFreshness() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 0);
+
+        unitOfWork.beginRequest(Long.MAX_VALUE, until -> { });
+        try {
+            assertThat(readFromReplica(unitOfWork)).isTrue();
+        } finally {
+            unitOfWork.endRequest();
+        }
+    }
+
+    @Test
+    void whenOnPrimaryThenReadFromPrimary() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+
+        assertThat(unitOfWork.onPrimary(() -> readFromReplica(unitOfWork))).isFalse();
+        assertThat(readFromReplica(unitOfWork)).isTrue();
+    }
+
+    @Test
+    void whenLoginThenNoFreshnessCookie() throws Exception {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+        Sql2oUserRepository userRepository = new Sql2oUserRepository(unitOfWork);
+        ReplicaFreshnessFilter filter = new ReplicaFreshnessFilter(unitOfWork, 60000);
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        MockHttpServletResponse update = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), login, (request, response) ->
+                userRepository.findByEmailAndPassword("replica@mail.ru", "password"));
+        filter.doFilter(new MockHttpServletRequest(), update, (request, response) -> write(unitOfWork));
+
+        assertThat(login.getCookie(ReplicaFreshnessFilter.COOKIE_NAME)).isNull();
+        assertThat(update.getCookie(ReplicaFreshnessFilter.COOKIE_NAME)).isNotNull();
+    }
+
+    @Test
+    void whenFileRowsReadFromPrimaryThenNotCountedAsWrite() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+        Sql2oFileRepository fileRepository = new Sql2oFileRepository(unitOfWork);
+
+        fileRepository.findById(0);
+        fileRepository.countByPath("files/replica.png");
+        fileRepository.findExistingPaths(List.of("files/replica.png"));
+        fileRepository.findAllAfterId(0, 1);
+        fileRepository.findUnreferencedAfterId(0, 1);
+
+        assertThat(unitOfWork.isReplicaReadable()).isTrue();
+    }
+
+    @Test
+    void whenFreshnessElapsedThenReadFromReplicaAgain() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 0);
+
+        write(unitOfWork);
+
+        assertThat(readFromReplica(unitOfWork)).isTrue();
+    }
+
+    @Test
+    void whenInTransactionThenReadFromPrimary() {
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(primary, Optional.of(replica), 60000);
+
+        boolean fromReplica = unitOfWork.inTransaction(() -> readFromReplica(unitOfWork));
+
+        assertThat(fromReplica).isFalse();
+    }
+
+    @Test
+    void whenNoReplicaThenReadFromPrimary() {
+        assertThat(readFromReplica(new Sql2oUnitOfWork(primary))).isFalse();
+    }
+
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.File;
@@ -40,11 +42,13 @@ class Sql2oCandidateRepositoryTest {
         String password = properties.getProperty("datasource.password");
 
         DatasourceConfiguration configuration = new DatasourceConfiguration();
-        DataSource dataSource = configuration.connectionPool(url, username, password);
+        DataSource dataSource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
         Sql2o sql2o = configuration.databaseClient(dataSource);
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(sql2o);
 
-        sql2oCandidateRepository = new Sql2oCandidateRepository(sql2o);
-        sql2oFileRepository = new Sql2oFileRepository(sql2o);
+        sql2oCandidateRepository = new Sql2oCandidateRepository(unitOfWork, new InProcessInvalidationBus());
+        sql2oFileRepository = new Sql2oFileRepository(unitOfWork);
         file = new File("test", "test");
         sql2oFileRepository.save(file);
     }
@@ -120,6 +124,33 @@ class Sql2oCandidateRepositoryTest {
         assertThat(savedCandidate).usingRecursiveComparison().isEqualTo(updatedCandidate);
     }
 
+    @Test
+    void whenReplaceFileThenPreviousFileIdReturned() {
+        LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        Candidate candidate = sql2oCandidateRepository.save(
+                new Candidate(0, "name", "description", creationDate, 1, file.getId()));
+        File otherFile = sql2oFileRepository.save(new File("other", "other"));
+        Candidate replaced = new Candidate(candidate.getId(), "new name", "new description", creationDate,
+                1, otherFile.getId());
+
+        Optional<Integer> previousFileId = sql2oCandidateRepository.updateReturningPreviousFileId(replaced);
+        Optional<Integer> deletedFileId =
+                sql2oCandidateRepository.deleteByIdReturningFileId(candidate.getId());
+        sql2oFileRepository.deleteById(otherFile.getId());
+
+        assertThat(previousFileId).contains(file.getId());
+        assertThat(deletedFileId).contains(otherFile.getId());
+        assertThat(sql2oCandidateRepository.findById(candidate.getId())).isEmpty();
+    }
+
+    @Test
+    void whenDeleteOrUpdateUnExistingThenNoFileId() {
+        Candidate missing = new Candidate(0, "name", "description", now(), 1, file.getId());
+
+        assertThat(sql2oCandidateRepository.deleteByIdReturningFileId(0)).isEmpty();
+        assertThat(sql2oCandidateRepository.updateReturningPreviousFileId(missing)).isEmpty();
+    }
+
     @Test
     void whenUpdateUnExistingCandidateThenGetFalse() {
         LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
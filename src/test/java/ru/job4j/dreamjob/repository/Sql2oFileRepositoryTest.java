@@ -0,0 +1,110 @@
+package ru.job4j.dreamjob.repository;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import javax.sql.DataSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+
+class Sql2oFileRepositoryTest {
+
+    private static Sql2oFileRepository sql2oFileRepository;
+    private static Sql2oVacancyRepository sql2oVacancyRepository;
+
+    @BeforeAll
+    static void initRepository() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Sql2oFileRepositoryTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        String url = properties.getProperty("datasource.url");
+        String username = properties.getProperty("datasource.username");
+        String password = properties.getProperty("datasource.password");
+
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        DataSource dataSource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
+        Sql2o sql2o = configuration.databaseClient(dataSource);
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(sql2o);
+
+        sql2oFileRepository = new Sql2oFileRepository(unitOfWork);
+        sql2oVacancyRepository = new Sql2oVacancyRepository(unitOfWork, new InProcessInvalidationBus());
+    }
+
+    @Test
+    void whenSaveThenFindSameWithSizeAndHash() {
+        File file = sql2oFileRepository.save(new File("name.png", "files/saved.png", 42, "abcdef"));
+
+        File savedFile = sql2oFileRepository.findById(file.getId()).get();
+        sql2oFileRepository.deleteById(file.getId());
+
+        assertThat(savedFile).usingRecursiveComparison().isEqualTo(file);
+    }
+
+    @Test
+    void whenDeleteThenNotFound() {
+        File file = sql2oFileRepository.save(new File("name.png", "files/deleted.png"));
+
+        boolean isDeleted = sql2oFileRepository.deleteById(file.getId());
+        Optional<File> savedFile = sql2oFileRepository.findById(file.getId());
+
+        assertThat(isDeleted).isTrue();
+        assertThat(savedFile).isEmpty();
+    }
+
+    @Test
+    void whenDeleteByInvalidIdThenGetFalse() {
+        assertThat(sql2oFileRepository.deleteById(0)).isFalse();
+    }
+
+    @Test
+    void whenWorkUnderFileLockFailsThenRolledBack() {
+        assertThatThrownBy(() -> sql2oFileRepository.inFileLock("locked.png", () -> {
+            sql2oFileRepository.save(new File("locked.png", "files/locked.png"));
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(sql2oFileRepository.countByPath("files/locked.png")).isZero();
+    }
+
+    @Test
+    void whenFindExistingPathsThenOnlyStoredReturned() {
+        File file = sql2oFileRepository.save(new File("name.png", "files/existing.png"));
+
+        Set<String> existing = sql2oFileRepository.findExistingPaths(
+                List.of("files/existing.png", "files/missing.png"));
+        sql2oFileRepository.deleteById(file.getId());
+
+        assertThat(existing).containsExactly("files/existing.png");
+        assertThat(sql2oFileRepository.findExistingPaths(List.of())).isEmpty();
+    }
+
+    @Test
+    void whenFindUnreferencedThenFilesOfVacanciesSkipped() {
+        File referenced = sql2oFileRepository.save(new File("name.png", "files/referenced.png"));
+        File orphan = sql2oFileRepository.save(new File("name.png", "files/orphan.png"));
+        Vacancy vacancy = sql2oVacancyRepository.save(
+                new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, referenced.getId()));
+
+        List<File> unreferenced = sql2oFileRepository.findUnreferencedAfterId(referenced.getId() - 1, 10);
+        sql2oVacancyRepository.deleteById(vacancy.getId());
+        sql2oFileRepository.deleteById(referenced.getId());
+        sql2oFileRepository.deleteById(orphan.getId());
+
+        assertThat(unreferenced).extracting(File::getId).containsExactly(orphan.getId());
+    }
+
+}
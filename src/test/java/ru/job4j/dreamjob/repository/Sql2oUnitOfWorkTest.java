@@ -0,0 +1,166 @@
+package ru.job4j.dreamjob.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import javax.sql.DataSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.cache.InvalidationBus;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.service.ImageResizer;
+import ru.job4j.dreamjob.service.SimpleFileService;
+import ru.job4j.dreamjob.service.SimpleVacancyService;
+import ru.job4j.dreamjob.service.VacancyService;
+import ru.job4j.dreamjob.storage.MemoryFileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
+
+class Sql2oUnitOfWorkTest {
+
+    private static Sql2oUnitOfWork unitOfWork;
+    private static Sql2oFileRepository sql2oFileRepository;
+    private static Sql2oVacancyRepository sql2oVacancyRepository;
+
+    @BeforeAll
+    static void initRepositories() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Sql2oUnitOfWorkTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        String url = properties.getProperty("datasource.url");
+        String username = properties.getProperty("datasource.username");
+        String password = properties.getProperty("datasource.password");
+
+        DatasourceConfiguration configuration = new DatasourceConfiguration();
+        DataSource dataSource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
+        Sql2o sql2o = configuration.databaseClient(dataSource);
+        unitOfWork = new Sql2oUnitOfWork(sql2o);
+
+        sql2oFileRepository = new Sql2oFileRepository(unitOfWork);
+        sql2oVacancyRepository = new Sql2oVacancyRepository(unitOfWork, new InProcessInvalidationBus());
+    }
+
+    private Vacancy createVacancy(int fileId) {
+        return new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, fileId);
+    }
+
+    @Test
+    void whenTransactionCommittedThenFileAndVacancySaved() {
+        Vacancy vacancy = unitOfWork.inTransaction(() -> {
+            File file = sql2oFileRepository.save(new File("name.png", "files/committed.png"));
+            return sql2oVacancyRepository.save(createVacancy(file.getId()));
+        });
+
+        boolean isVacancySaved = sql2oVacancyRepository.findById(vacancy.getId()).isPresent();
+        boolean isFileSaved = sql2oFileRepository.findById(vacancy.getFileId()).isPresent();
+        sql2oVacancyRepository.deleteById(vacancy.getId());
+        sql2oFileRepository.deleteById(vacancy.getFileId());
+
+        assertThat(isVacancySaved).isTrue();
+        assertThat(isFileSaved).isTrue();
+    }
+
+    @Test
+    void whenTransactionFailsThenNothingSavedAndAfterCommitSkipped() {
+        List<Integer> fileIds = new ArrayList<>();
+        List<String> actions = new ArrayList<>();
+
+        assertThatThrownBy(() -> unitOfWork.inTransaction(() -> {
+            File file = sql2oFileRepository.save(new File("name.png", "files/rolled-back.png"));
+            fileIds.add(file.getId());
+            unitOfWork.afterCommit(() -> actions.add("afterCommit"));
+            sql2oVacancyRepository.save(createVacancy(-1));
+            return file;
+        })).isInstanceOf(RuntimeException.class);
+
+        assertThat(sql2oFileRepository.findById(fileIds.get(0))).isEmpty();
+        assertThat(actions).isEmpty();
+    }
+
+    @Test
+    void whenSaveVacancyWithImageFailsThenFileRowRolledBackWithIt() {
+        MemoryFileStorage storage = new MemoryFileStorage();
+        SimpleFileService fileService = new SimpleFileService(sql2oFileRepository, storage,
+                new StorageLayout("files", false), new ImageResizer(List.of(64), 1_000_000, 1, 4),
+                false, 1024, 1024);
+        VacancyService vacancyService =
+                new SimpleVacancyService(sql2oVacancyRepository, fileService, unitOfWork);
+        FileUploadDto image =
+                new FileUploadDto("image.png", 1, () -> new ByteArrayInputStream(new byte[] {1}));
+        Vacancy vacancy = new Vacancy(0, "title", "description", LocalDateTime.now(), true, -1, 0);
+        int filesBefore = countFiles();
+
+        assertThatThrownBy(() -> vacancyService.save(vacancy, image)).isInstanceOf(RuntimeException.class);
+
+        assertThat(countFiles()).isEqualTo(filesBefore);
+        assertThat(storage.list("files")).isEmpty();
+    }
+
+    private int countFiles() {
+        return unitOfWork.withReadConnection(connection ->
+                connection.createQuery("SELECT COUNT(*) FROM files").executeScalar(Integer.class));
+    }
+
+    @Test
+    void whenAfterCommitThenRunOnlyAfterCommit() {
+        List<String> actions = new ArrayList<>();
+
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.afterCommit(() -> actions.add("afterCommit"));
+            actions.add("work");
+            return null;
+        });
+        unitOfWork.afterCommit(() -> actions.add("noTransaction"));
+
+        assertThat(actions).containsExactly("work", "afterCommit", "noTransaction");
+    }
+
+    @Test
+    void whenNestedTransactionFailsThenOuterRolledBack() {
+        List<Integer> fileIds = new ArrayList<>();
+
+        assertThatThrownBy(() -> unitOfWork.inTransaction(() -> {
+            fileIds.add(sql2oFileRepository.save(new File("name.png", "files/outer.png")).getId());
+            return unitOfWork.inTransaction(() -> {
+                throw new IllegalStateException();
+            });
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(sql2oFileRepository.findById(fileIds.get(0))).isEmpty();
+    }
+
+    @Test
+    void whenUpdateThenPublishedInTransactionOfWrite() {
+        List<String> published = new ArrayList<>();
+        InvalidationBus bus = new InProcessInvalidationBus() {
+            @Override
+            public void publish(String entity, int id) {
+                published.add(entity + ":" + id + ":" + unitOfWork.isInTransaction());
+            }
+        };
+        Sql2oVacancyRepository repository = new Sql2oVacancyRepository(unitOfWork, bus);
+        File file = sql2oFileRepository.save(new File("name.png", "files/published.png"));
+        Vacancy vacancy = repository.save(createVacancy(file.getId()));
+
+        repository.update(vacancy);
+        repository.deleteById(vacancy.getId());
+        sql2oFileRepository.deleteById(file.getId());
+
+        assertThat(published).containsExactly(
+                "vacancies:" + vacancy.getId() + ":true", "vacancies:" + vacancy.getId() + ":true");
+    }
+
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
 import ru.job4j.dreamjob.model.User;
 
@@ -29,10 +30,12 @@ class Sql2oUserRepositoryTest {
          String password = properties.getProperty("datasource.password");
 
          DatasourceConfiguration configuration = new DatasourceConfiguration();
-         DataSource dataSource = configuration.connectionPool(url, username, password);
+         DataSource dataSource = configuration.connectionPool(url, username, password,
+                 new ConnectionPoolProperties());
          Sql2o sql2o = configuration.databaseClient(dataSource);
+         Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(sql2o);
 
-         sql2oUserRepository = new Sql2oUserRepository(sql2o);
+         sql2oUserRepository = new Sql2oUserRepository(unitOfWork);
          user = new User(0, "email", "name", "password");
     }
 
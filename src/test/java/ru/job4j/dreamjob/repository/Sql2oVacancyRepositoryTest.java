@@ -5,12 +5,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.configuration.ConnectionPoolProperties;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import javax.sql.DataSource;
 import java.io.InputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
@@ -40,11 +46,13 @@ class Sql2oVacancyRepositoryTest {
         String password = properties.getProperty("datasource.password");
 
         DatasourceConfiguration configuration = new DatasourceConfiguration();
-        DataSource datasource = configuration.connectionPool(url, username, password);
+        DataSource datasource = configuration.connectionPool(url, username, password,
+                new ConnectionPoolProperties());
         Sql2o sql2o = configuration.databaseClient(datasource);
+        Sql2oUnitOfWork unitOfWork = new Sql2oUnitOfWork(sql2o);
 
-        sql2oVacancyRepository = new Sql2oVacancyRepository(sql2o);
-        sql2oFileRepository = new Sql2oFileRepository(sql2o);
+        sql2oVacancyRepository = new Sql2oVacancyRepository(unitOfWork, new InProcessInvalidationBus());
+        sql2oFileRepository = new Sql2oFileRepository(unitOfWork);
 
         /*
         Нужно сохранить хотя бы один файл, т.к. Vacancy от него зависит
@@ -125,6 +133,32 @@ class Sql2oVacancyRepositoryTest {
         assertThat(savedVacancy).usingRecursiveComparison().isEqualTo(updatedVacancy);
     }
 
+    @Test
+    void whenReplaceFileThenPreviousFileIdReturned() {
+        LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        Vacancy vacancy = sql2oVacancyRepository.save(
+                new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        File otherFile = sql2oFileRepository.save(new File("other", "other"));
+        Vacancy replaced = new Vacancy(vacancy.getId(), "new title", "new description", creationDate, true, 1,
+                otherFile.getId());
+
+        Optional<Integer> previousFileId = sql2oVacancyRepository.updateReturningPreviousFileId(replaced);
+        Optional<Integer> deletedFileId = sql2oVacancyRepository.deleteByIdReturningFileId(vacancy.getId());
+        sql2oFileRepository.deleteById(otherFile.getId());
+
+        assertThat(previousFileId).contains(file.getId());
+        assertThat(deletedFileId).contains(otherFile.getId());
+        assertThat(sql2oVacancyRepository.findById(vacancy.getId())).isEmpty();
+    }
+
+    @Test
+    void whenDeleteOrUpdateUnExistingThenNoFileId() {
+        Vacancy missing = new Vacancy(0, "title", "description", now(), true, 1, file.getId());
+
+        assertThat(sql2oVacancyRepository.deleteByIdReturningFileId(0)).isEmpty();
+        assertThat(sql2oVacancyRepository.updateReturningPreviousFileId(missing)).isEmpty();
+    }
+
     @Test
     void whenUpdateUnExistingVacancyThenGetFalse() {
         LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
@@ -132,4 +166,72 @@ class Sql2oVacancyRepositoryTest {
         assertThat(sql2oVacancyRepository.update(vacancy)).isFalse();
     }
 
+    @Test
+    void whenFindPagesThenVacanciesOrderedByCreationDateAndId() {
+        LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        Vacancy oldest = sql2oVacancyRepository.save(
+                new Vacancy(0, "title1", "description1", creationDate.minusDays(1), true, 1, file.getId()));
+        Vacancy middle = sql2oVacancyRepository.save(
+                new Vacancy(0, "title2", "description2", creationDate, true, 1, file.getId()));
+        Vacancy newest = sql2oVacancyRepository.save(
+                new Vacancy(0, "title3", "description3", creationDate, true, 1, file.getId()));
+        PageCursor middleCursor = new PageCursor(middle.getCreationDate(), middle.getId());
+        VacancyCriteria all = new VacancyCriteria();
+
+        List<VacancySummaryDto> firstPage = sql2oVacancyRepository.findPageAfter(null, all, 2);
+        List<VacancySummaryDto> afterMiddle = sql2oVacancyRepository.findPageAfter(middleCursor, all, 2);
+        List<VacancySummaryDto> beforeMiddle = sql2oVacancyRepository.findPageBefore(middleCursor, all, 2);
+
+        assertThat(firstPage.stream().map(VacancySummaryDto::getId).toList())
+                .isEqualTo(List.of(newest.getId(), middle.getId()));
+        assertThat(afterMiddle.stream().map(VacancySummaryDto::getId).toList())
+                .isEqualTo(List.of(oldest.getId()));
+        assertThat(beforeMiddle.stream().map(VacancySummaryDto::getId).toList())
+                .isEqualTo(List.of(newest.getId()));
+        assertThat(firstPage.get(0)).usingRecursiveComparison()
+                .isEqualTo(new VacancySummaryDto(newest.getId(), "title3", creationDate, true, file.getId()));
+    }
+
+    @Test
+    void whenSearchThenTitleMatchesFirstAndPatternSymbolsEscaped() {
+        LocalDateTime creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        Vacancy inDescription = sql2oVacancyRepository.save(new Vacancy(
+                0, "Developer", "Kotlin and JAVA", creationDate.plusDays(1), true, 1, file.getId()));
+        Vacancy inTitle = sql2oVacancyRepository.save(
+                new Vacancy(0, "Java Developer", "backend", creationDate, true, 1, file.getId()));
+        sql2oVacancyRepository.save(
+                new Vacancy(0, "Go Developer", "100% remote", creationDate, true, 1, file.getId()));
+
+        List<VacancySummaryDto> found = sql2oVacancyRepository.search("java", 0, 10);
+        List<VacancySummaryDto> secondPage = sql2oVacancyRepository.search("java", 1, 10);
+        List<VacancySummaryDto> percent = sql2oVacancyRepository.search("0%", 0, 10);
+        List<VacancySummaryDto> underscore = sql2oVacancyRepository.search("_", 0, 10);
+
+        assertThat(found.stream().map(VacancySummaryDto::getId).toList())
+                .isEqualTo(List.of(inTitle.getId(), inDescription.getId()));
+        assertThat(secondPage.stream().map(VacancySummaryDto::getId).toList())
+                .isEqualTo(List.of(inDescription.getId()));
+        assertThat(percent.size()).isEqualTo(1);
+        assertThat(underscore).isEqualTo(emptyList());
+    }
+
+    @Test
+    void whenFindPageByCriteriaThenOnlyMatchingVacancies() {
+        LocalDateTime creationDate = LocalDateTime.of(2023, 3, 21, 12, 0);
+        Vacancy match = sql2oVacancyRepository.save(
+                new Vacancy(0, "title1", "description1", creationDate, true, 1, file.getId()));
+        sql2oVacancyRepository.save(
+                new Vacancy(0, "title2", "description2", creationDate, false, 1, file.getId()));
+        sql2oVacancyRepository.save(
+                new Vacancy(0, "title3", "description3", creationDate, true, 2, file.getId()));
+        sql2oVacancyRepository.save(
+                new Vacancy(0, "title4", "description4", creationDate.minusDays(8), true, 1, file.getId()));
+        VacancyCriteria criteria =
+                new VacancyCriteria(1, true, LocalDate.of(2023, 3, 14), LocalDate.of(2023, 3, 21));
+
+        List<VacancySummaryDto> page = sql2oVacancyRepository.findPageAfter(null, criteria, 10);
+
+        assertThat(page.stream().map(VacancySummaryDto::getId).toList()).isEqualTo(List.of(match.getId()));
+    }
+
 }
\ No newline at end of file
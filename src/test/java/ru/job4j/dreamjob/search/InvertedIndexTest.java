@@ -0,0 +1,55 @@
+package ru.job4j.dreamjob.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTest {
+
+    @Test
+    void whenSearchThenTitleAndRareWordsRankHigher() {
+        InvertedIndex index = new InvertedIndex(2, 1);
+        index.put(1, "Java Developer", "Spring, SQL");
+        index.put(2, "Kotlin Developer", "Java в прошлом");
+        index.put(3, "QA Engineer", "Selenium");
+        index.put(4, "Java Team Lead", "Spring Boot");
+
+        assertThat(index.search("java", 10)).containsExactly(4, 1, 2);
+        assertThat(index.search("spring developer", 10)).containsExactly(1, 2, 4);
+        assertThat(index.search("java", 2)).containsExactly(4, 1);
+        assertThat(index.search("python", 10)).isEmpty();
+    }
+
+    @Test
+    void whenTextInRussianThenCaseAndYoIgnored() {
+        InvertedIndex index = new InvertedIndex(1);
+        index.put(1, "Ведущий разработчик, удалённо");
+
+        assertThat(index.search("РАЗРАБОТЧИК", 10)).containsExactly(1);
+        assertThat(index.search("удаленно", 10)).containsExactly(1);
+        assertThat(index.search("разработчика", 10)).isEmpty();
+    }
+
+    @Test
+    void whenUpdateOrRemoveThenOldTermsForgotten() {
+        InvertedIndex index = new InvertedIndex(1);
+        index.put(1, "Java");
+        index.put(2, "Java");
+
+        index.put(1, "Go");
+        index.remove(2);
+
+        assertThat(index.search("java", 10)).isEmpty();
+        assertThat(index.search("go", 10)).containsExactly(1);
+    }
+
+    @Test
+    void whenIdsAddedOutOfOrderThenAllFound() {
+        InvertedIndex index = new InvertedIndex(1);
+        for (int id : new int[] {5, 1, 9, 3, 7, 2, 8, 4, 6}) {
+            index.put(id, "word");
+        }
+
+        assertThat(index.search("word", 20)).containsExactly(9, 8, 7, 6, 5, 4, 3, 2, 1);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package ru.job4j.dreamjob.service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.MemoryFileRepository;
+import ru.job4j.dreamjob.storage.FileStorage;
+import ru.job4j.dreamjob.storage.LocalFileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
+
+class OrphanFileCollectorTest {
+
+    @TempDir
+    private Path directory;
+
+    private final Set<Integer> referencedIds = new HashSet<>();
+
+    /**
+     * Ссылки вакансий и кандидатов на файлы задаются в тесте набором referencedIds.
+     */
+    private final MemoryFileRepository fileRepository = new MemoryFileRepository() {
+        @Override
+        public List<File> findUnreferencedAfterId(int id, int limit) {
+            return findAllAfterId(id, Integer.MAX_VALUE).stream()
+                    .filter(file -> !referencedIds.contains(file.getId()))
+                    .limit(limit)
+                    .toList();
+        }
+    };
+
+    private final FileStorage storage = new LocalFileStorage();
+    private StorageLayout layout;
+    private SimpleFileService fileService;
+
+    @BeforeEach
+    public void initService() {
+        layout = new StorageLayout(directory.toString(), true);
+        ImageResizer imageResizer = new ImageResizer(List.of(64), 1_000_000, 1, 4);
+        fileService = new SimpleFileService(fileRepository, storage, layout, imageResizer, false, 1024, 1024);
+    }
+
+    private OrphanFileCollector createCollector(boolean dryRun) {
+        return new OrphanFileCollector(fileRepository, fileService, storage, layout, 1, 0, dryRun);
+    }
+
+    @Test
+    void whenRowUnreferencedOnTwoPassesThenRowAndContentDeleted() {
+        File orphan = fileService.save(new FileDto("orphan.png", new byte[] {1}));
+        File referenced = fileService.save(new FileDto("used.png", new byte[] {2}));
+        referencedIds.add(referenced.getId());
+        OrphanFileCollector collector = createCollector(false);
+
+        collector.collect();
+        boolean isKeptAfterFirstPass = fileRepository.findById(orphan.getId()).isPresent();
+        collector.collect();
+
+        assertThat(isKeptAfterFirstPass).isTrue();
+        assertThat(fileRepository.findById(orphan.getId())).isEmpty();
+        assertThat(Files.exists(Path.of(orphan.getPath()))).isFalse();
+        assertThat(fileRepository.findById(referenced.getId())).isPresent();
+        assertThat(Files.exists(Path.of(referenced.getPath()))).isTrue();
+    }
+
+    @Test
+    void whenRowReferencedBeforeSecondPassThenKept() {
+        File file = fileService.save(new FileDto("new.png", new byte[] {1}));
+        OrphanFileCollector collector = createCollector(false);
+
+        collector.collect();
+        referencedIds.add(file.getId());
+        collector.collect();
+
+        assertThat(fileRepository.findById(file.getId())).isPresent();
+    }
+
+    @Test
+    void whenContentWithoutRowThenDeletedButVariantOfUsedFileKept() {
+        File used = fileService.save(new FileDto("used.png", new byte[] {1}));
+        referencedIds.add(used.getId());
+        Path stray = Path.of(layout.getKey("stray.png"));
+        storage.write(stray.toString(), new ByteArrayInputStream(new byte[] {1}), 1);
+        Path variant = Path.of(layout.getVariantKey(used.getPath(), 64, "png"));
+        storage.write(variant.toString(), new ByteArrayInputStream(new byte[] {1}), 1);
+        OrphanFileCollector collector = createCollector(false);
+
+        collector.collect();
+        collector.collect();
+
+        assertThat(Files.exists(stray)).isFalse();
+        assertThat(Files.exists(variant)).isTrue();
+        assertThat(Files.exists(Path.of(used.getPath()))).isTrue();
+    }
+
+    @Test
+    void whenScanBlobsThenReferencesLookedUpPerBatch() {
+        for (int i = 0; i < 5; i++) {
+            storage.write(layout.getKey("stray" + i + ".png"), new ByteArrayInputStream(new byte[] {1}), 1);
+        }
+        List<Integer> lookups = new ArrayList<>();
+        MemoryFileRepository countingRepository = new MemoryFileRepository() {
+            @Override
+            public Set<String> findExistingPaths(Collection<String> paths) {
+                lookups.add(paths.size());
+                return super.findExistingPaths(paths);
+            }
+        };
+        SimpleFileService service = new SimpleFileService(countingRepository, storage, layout,
+                new ImageResizer(List.of(64), 1_000_000, 1, 4), false, 1024, 1024);
+
+        new OrphanFileCollector(countingRepository, service, storage, layout, 2, 0, true).collect();
+
+        assertThat(lookups).hasSize(3);
+    }
+
+    @Test
+    void whenDryRunThenNothingDeletedButCounted() {
+        File orphan = fileService.save(new FileDto("orphan.png", new byte[] {1}));
+        OrphanFileCollector collector = createCollector(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        collector.bindTo(registry);
+
+        collector.collect();
+        collector.collect();
+        collector.collect();
+
+        assertThat(fileRepository.findById(orphan.getId())).isPresent();
+        assertThat(Files.exists(Path.of(orphan.getPath()))).isTrue();
+        assertThat(registry.get("files.gc.deleted").tag("type", "row").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("files.gc.orphans").tag("type", "row").gauge().value()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,68 @@
+package ru.job4j.dreamjob.service;
+
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.cache.InProcessInvalidationBus;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.repository.CityRepository;
+
+class SimpleCityServiceTest {
+
+    private final City moscow = new City(1, "Москва");
+    private final City kazan = new City(4, "Казань");
+
+    @Test
+    void whenFindCitiesThenRepositoryReadOnce() {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(List.of(moscow));
+        CityService cityService = new SimpleCityService(cityRepository, new InProcessInvalidationBus());
+
+        cityService.findAll();
+        cityService.findAll();
+
+        assertThat(cityService.findById(1)).containsSame(moscow);
+        assertThat(cityService.findById(4)).isEmpty();
+        verify(cityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void whenRefreshThenNewCitiesVisible() {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(List.of(moscow)).thenReturn(List.of(moscow, kazan));
+        CityService cityService = new SimpleCityService(cityRepository, new InProcessInvalidationBus());
+
+        cityService.refresh();
+
+        assertThat(cityService.findAll()).containsExactly(moscow, kazan);
+        assertThat(cityService.findById(4)).containsSame(kazan);
+    }
+
+    @Test
+    void whenScheduledRefreshFailsThenKeepPreviousCities() {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(List.of(moscow)).thenThrow(new IllegalStateException());
+        SimpleCityService cityService = new SimpleCityService(cityRepository, new InProcessInvalidationBus());
+
+        cityService.scheduledRefresh();
+
+        assertThat(cityService.findAll()).containsExactly(moscow);
+    }
+
+    @Test
+    void whenBusReportsLostMessagesThenCitiesReloaded() {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(List.of(moscow)).thenReturn(List.of(moscow, kazan));
+        InProcessInvalidationBus bus = new InProcessInvalidationBus();
+        CityService cityService = new SimpleCityService(cityRepository, bus);
+
+        bus.publishAll();
+
+        assertThat(cityService.findById(4)).containsSame(kazan);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,323 @@
+package ru.job4j.dreamjob.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.ImageIO;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.DigestUtils;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.repository.MemoryFileRepository;
+import ru.job4j.dreamjob.storage.FileStorage;
+import ru.job4j.dreamjob.storage.LocalFileStorage;
+import ru.job4j.dreamjob.storage.MemoryFileStorage;
+import ru.job4j.dreamjob.storage.StorageLayout;
+
+class SimpleFileServiceTest {
+
+    @TempDir
+    private Path directory;
+
+    private final FileRepository fileRepository = new MemoryFileRepository();
+
+    private SimpleFileService createService(boolean contentAddressed) {
+        return createService(fileRepository, contentAddressed, false);
+    }
+
+    private SimpleFileService createService(FileRepository fileRepository, boolean contentAddressed,
+                                            boolean sharded) {
+        return createService(fileRepository, new LocalFileStorage(), contentAddressed, sharded);
+    }
+
+    private SimpleFileService createService(FileRepository fileRepository, FileStorage storage,
+                                            boolean contentAddressed, boolean sharded) {
+        StorageLayout layout = new StorageLayout(directory.toString(), sharded);
+        ImageResizer imageResizer = new ImageResizer(List.of(64, 128), 1_000_000, 1, 4);
+        return new SimpleFileService(fileRepository, storage, layout, imageResizer, contentAddressed,
+                1024 * 1024, 1024);
+    }
+
+    private byte[] createImage(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+
+    @Test
+    void whenSaveThenContentStoredWithSizeAndHash() throws Exception {
+        SimpleFileService fileService = createService(false);
+        byte[] content = {1, 2, 3};
+
+        File file = fileService.save(new FileDto("image.png", content));
+
+        String expectedHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertThat(Files.readAllBytes(Path.of(file.getPath()))).isEqualTo(content);
+        assertThat(file.getSize()).isEqualTo(3);
+        assertThat(file.getHash()).isEqualTo(expectedHash);
+        assertThat(fileService.getFileById(file.getId()).get().getContent()).isEqualTo(content);
+    }
+
+    @Test
+    void whenSaveSameContentTwiceWithoutDeduplicationThenTwoCopies() {
+        SimpleFileService fileService = createService(false);
+
+        File first = fileService.save(new FileDto("logo.png", new byte[] {1, 2, 3}));
+        File second = fileService.save(new FileDto("logo.png", new byte[] {1, 2, 3}));
+
+        assertThat(first.getPath()).isNotEqualTo(second.getPath());
+        assertThat(Files.exists(Path.of(first.getPath()))).isTrue();
+        assertThat(Files.exists(Path.of(second.getPath()))).isTrue();
+    }
+
+    @Test
+    void whenSaveWithoutDeduplicationThenWrittenOnceToFinalKey() {
+        FileStorage storage = spy(new MemoryFileStorage());
+        SimpleFileService fileService = createService(fileRepository, storage, false, true);
+
+        File file = fileService.save(new FileDto("image.png", new byte[] {1, 2, 3}));
+
+        verify(storage).write(eq(file.getPath()), any(), anyLong());
+        verify(storage, never()).move(any(), any());
+    }
+
+    @Test
+    void whenSaveSameContentTwiceWithDeduplicationThenOneCopy() throws Exception {
+        SimpleFileService fileService = createService(true);
+
+        File first = fileService.save(new FileDto("logo.png", new byte[] {1, 2, 3}));
+        File second = fileService.save(new FileDto("other.png", new byte[] {1, 2, 3}));
+
+        assertThat(first.getId()).isNotEqualTo(second.getId());
+        assertThat(first.getPath()).isEqualTo(second.getPath());
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void whenDeleteSharedContentThenRemovedOnlyWithLastReference() {
+        SimpleFileService fileService = createService(true);
+        File first = fileService.save(new FileDto("logo.png", new byte[] {1, 2, 3}));
+        File second = fileService.save(new FileDto("other.png", new byte[] {1, 2, 3}));
+        Path path = Path.of(first.getPath());
+
+        assertThat(fileService.deleteById(first.getId())).isTrue();
+        assertThat(Files.exists(path)).isTrue();
+        assertThat(fileService.getFileById(second.getId()).get().getContent())
+                .isEqualTo(new byte[] {1, 2, 3});
+
+        assertThat(fileService.deleteById(second.getId())).isTrue();
+        assertThat(Files.exists(path)).isFalse();
+    }
+
+    @Test
+    void whenFileLoadedWhileDeletedThenNotLeftInCache() throws Exception {
+        CountDownLatch rowRead = new CountDownLatch(1);
+        CountDownLatch rowDeleted = new CountDownLatch(1);
+        AtomicBoolean pauseNextRead = new AtomicBoolean();
+        AtomicReference<SimpleFileService> service = new AtomicReference<>();
+        AtomicReference<Thread> loader = new AtomicReference<>();
+        FileRepository repository = new MemoryFileRepository() {
+            @Override
+            public Optional<File> findById(int id) {
+                Optional<File> file = super.findById(id);
+                if (pauseNextRead.compareAndSet(true, false)) {
+                    rowRead.countDown();
+                    await(rowDeleted);
+                }
+                return file;
+            }
+
+            @Override
+            public boolean deleteById(int id) {
+                pauseNextRead.set(true);
+                loader.set(new Thread(() -> service.get().getFileResourceById(id)));
+                loader.get().start();
+                await(rowRead);
+                boolean deleted = super.deleteById(id);
+                rowDeleted.countDown();
+                return deleted;
+            }
+        };
+        service.set(createService(repository, true, false));
+        File deleted = service.get().save(new FileDto("logo.png", new byte[] {1, 2, 3}));
+        service.get().save(new FileDto("other.png", new byte[] {1, 2, 3}));
+
+        assertThat(service.get().deleteById(deleted.getId())).isTrue();
+        loader.get().join();
+
+        assertThat(service.get().findFileById(deleted.getId())).isEmpty();
+        assertThat(service.get().getFileResourceById(deleted.getId())).isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void whenDeleteUnknownIdThenFalse() {
+        assertThat(createService(true).deleteById(0)).isFalse();
+    }
+
+    @Test
+    void whenShardedThenFileStoredInTwoLevelSubdirectory() {
+        SimpleFileService fileService = createService(fileRepository, false, true);
+
+        File file = fileService.save(new FileDto("image.png", new byte[] {1, 2, 3}));
+
+        Path path = Path.of(file.getPath());
+        assertThat(Files.exists(path)).isTrue();
+        assertThat(directory.relativize(path).getNameCount()).isEqualTo(3);
+        assertThat(path.getParent().getFileName().toString()).matches("[0-9a-f]{2}");
+    }
+
+    @Test
+    void whenMigrateFlatFilesThenMovedAndPathsRewritten() {
+        File first = createService(fileRepository, false, false)
+                .save(new FileDto("first.png", new byte[] {1}));
+        File second = createService(fileRepository, false, false)
+                .save(new FileDto("second.png", new byte[] {2}));
+        String firstFlatPath = first.getPath();
+        SimpleFileService fileService = createService(fileRepository, false, true);
+
+        int migrated = fileService.migrateToShardedLayout(1);
+
+        File migratedFirst = fileRepository.findById(first.getId()).get();
+        assertThat(migrated).isEqualTo(2);
+        assertThat(migratedFirst.getPath()).isNotEqualTo(firstFlatPath);
+        assertThat(Files.exists(Path.of(firstFlatPath))).isFalse();
+        assertThat(Files.exists(Path.of(migratedFirst.getPath()))).isTrue();
+        assertThat(fileService.getFileById(second.getId()).get().getContent()).isEqualTo(new byte[] {2});
+        assertThat(fileService.migrateToShardedLayout(10)).isZero();
+    }
+
+    @Test
+    void whenFileMovedButRowNotYetRewrittenThenStillFound() throws Exception {
+        File file = createService(fileRepository, false, false)
+                .save(new FileDto("image.png", new byte[] {1, 2, 3}));
+        Path flatPath = Path.of(file.getPath());
+        Path shardedPath = getShardedPath(flatPath.getFileName().toString());
+        Files.createDirectories(shardedPath.getParent());
+        Files.move(flatPath, shardedPath);
+
+        SimpleFileService fileService = createService(fileRepository, false, true);
+
+        assertThat(fileService.getFileById(file.getId()).get().getContent()).isEqualTo(new byte[] {1, 2, 3});
+    }
+
+    @Test
+    void whenMemoryStorageThenContentNotWrittenToDisk() throws Exception {
+        FileStorage storage = new MemoryFileStorage();
+        SimpleFileService fileService = createService(fileRepository, storage, true, true);
+
+        File file = fileService.save(new FileDto("image.png", new byte[] {1, 2, 3}));
+
+        assertThat(storage.exists(file.getPath())).isTrue();
+        assertThat(fileService.getFileById(file.getId()).get().getContent()).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(fileService.deleteById(file.getId())).isTrue();
+        assertThat(storage.exists(file.getPath())).isFalse();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void whenRequestImageWidthThenResizedVariantStoredNextToOriginal() throws Exception {
+        SimpleFileService fileService = createService(fileRepository, true, true);
+        File file = fileService.save(new FileDto("photo.png", createImage(400, 200)));
+
+        FileResourceDto variant = fileService.getFileResourceById(file.getId(), 100).get();
+
+        byte[] content = variant.getResource().getContentAsByteArray();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(content));
+        assertThat(image.getWidth()).isEqualTo(128);
+        assertThat(image.getHeight()).isEqualTo(64);
+        assertThat(variant.getName()).isEqualTo("photo.png");
+        assertThat(variant.getPath()).isEqualTo(file.getPath() + ".w128.png");
+        assertThat(Files.exists(Path.of(variant.getPath()))).isTrue();
+        assertThat(Path.of(variant.getPath()).getParent()).isEqualTo(Path.of(file.getPath()).getParent());
+    }
+
+    @Test
+    void whenVariantCreatedThenMovedIntoPlaceFromTemporaryKey() throws Exception {
+        FileStorage storage = spy(new MemoryFileStorage());
+        SimpleFileService fileService = createService(fileRepository, storage, true, true);
+        File file = fileService.save(new FileDto("photo.png", createImage(400, 200)));
+
+        String variantPath = fileService.getFileResourceById(file.getId(), 100).get().getPath();
+
+        verify(storage, never()).write(eq(variantPath), any(), anyLong());
+        verify(storage).move(any(), eq(variantPath));
+        assertThat(storage.exists(variantPath)).isTrue();
+    }
+
+    @Test
+    void whenRequestWidthOfSmallImageOrNotImageThenOriginal() throws Exception {
+        SimpleFileService fileService = createService(false);
+        File small = fileService.save(new FileDto("small.png", createImage(32, 32)));
+        File text = fileService.save(new FileDto("notes.txt", new byte[] {1, 2, 3}));
+
+        assertThat(fileService.getFileResourceById(small.getId(), 64).get().getPath())
+                .isEqualTo(small.getPath());
+        assertThat(fileService.getFileResourceById(text.getId(), 64).get().getPath())
+                .isEqualTo(text.getPath());
+    }
+
+    @Test
+    void whenFindMetadataThenContentNotRead() {
+        FileStorage storage = new MemoryFileStorage();
+        SimpleFileService fileService = createService(fileRepository, storage, false, true);
+        File file = fileService.save(new FileDto("photo.png", new byte[] {1, 2, 3}));
+        storage.delete(file.getPath());
+
+        assertThat(fileService.findFileById(file.getId()).get().getPath()).isEqualTo(file.getPath());
+        assertThat(fileService.findFileById(file.getId(), 100).get().getPath())
+                .isEqualTo(file.getPath() + ".w128.png");
+    }
+
+    @Test
+    void whenDeleteImageThenVariantsDeleted() throws Exception {
+        SimpleFileService fileService = createService(false);
+        File file = fileService.save(new FileDto("photo.png", createImage(400, 200)));
+        String variantPath = fileService.getFileResourceById(file.getId(), 64).get().getPath();
+
+        fileService.deleteById(file.getId());
+
+        assertThat(Files.exists(Path.of(variantPath))).isFalse();
+        assertThat(fileService.getFileResourceById(file.getId(), 64)).isEmpty();
+    }
+
+    private Path getShardedPath(String fileName) {
+        String shard = DigestUtils.md5DigestAsHex(fileName.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(fileName);
+    }
+
+}
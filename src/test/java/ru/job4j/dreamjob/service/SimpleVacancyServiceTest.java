@@ -0,0 +1,211 @@
+package ru.job4j.dreamjob.service;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.dto.FileUploadDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.PageDto;
+import ru.job4j.dreamjob.dto.SearchPageDto;
+import ru.job4j.dreamjob.dto.StoredFileDto;
+import ru.job4j.dreamjob.dto.VacancyCriteria;
+import ru.job4j.dreamjob.dto.VacancySummaryDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.MemoryVacancyRepository;
+import ru.job4j.dreamjob.repository.UnitOfWork;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+
+class SimpleVacancyServiceTest {
+
+    private final VacancyService vacancyService = new SimpleVacancyService(
+            new MemoryVacancyRepository(), mock(FileService.class), mock(UnitOfWork.class));
+    private final VacancyCriteria all = new VacancyCriteria();
+    private final FileUploadDto image =
+            new FileUploadDto("image.png", 1, () -> new ByteArrayInputStream(new byte[] {1}));
+    private final StoredFileDto stored = new StoredFileDto(new File("image.png", "files/image.png"), null);
+
+    @Test
+    void whenWalkPagesForwardAndBackThenSameVacancies() {
+        PageDto<VacancySummaryDto> first = vacancyService.findNextPage(null, all, 4);
+        PageDto<VacancySummaryDto> second = vacancyService.findNextPage(first.getNext(), all, 4);
+        PageDto<VacancySummaryDto> backToFirst =
+                vacancyService.findPreviousPage(second.getPrevious(), all, 4);
+
+        assertThat(first.getItems()).extracting(VacancySummaryDto::getId).containsExactly(6, 5, 4, 3);
+        assertThat(first.hasPrevious()).isFalse();
+        assertThat(second.getItems()).extracting(VacancySummaryDto::getId).containsExactly(2, 1);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(backToFirst.getItems()).extracting(VacancySummaryDto::getId).containsExactly(6, 5, 4, 3);
+        assertThat(backToFirst.hasPrevious()).isFalse();
+        assertThat(backToFirst.getNext()).isEqualTo(first.getNext());
+    }
+
+    @Test
+    void whenNothingBeforeCursorThenFirstPage() {
+        PageCursor newerThanAll = new PageCursor(LocalDateTime.of(2030, 1, 1, 0, 0), 0);
+
+        PageDto<VacancySummaryDto> page = vacancyService.findPreviousPage(newerThanAll, all, 4);
+
+        assertThat(page.getItems()).extracting(VacancySummaryDto::getId).containsExactly(6, 5, 4, 3);
+        assertThat(page.hasPrevious()).isFalse();
+    }
+
+    @Test
+    void whenSearchThenNumberedPages() {
+        SearchPageDto<VacancySummaryDto> first = vacancyService.search(" junior ", 0, 1);
+        SearchPageDto<VacancySummaryDto> second = vacancyService.search(" junior ", 1, 1);
+
+        assertThat(first.getItems()).extracting(VacancySummaryDto::getTitle)
+                .containsExactly("Junior+ Java Developer");
+        assertThat(first.hasPrevious()).isFalse();
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getItems()).extracting(VacancySummaryDto::getTitle)
+                .containsExactly("Junior Java Developer");
+        assertThat(second.hasPrevious()).isTrue();
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenSearchPageTooFarThenOffsetNotOverflowed() {
+        VacancyRepository repository = mock(VacancyRepository.class);
+        VacancyService service =
+                new SimpleVacancyService(repository, mock(FileService.class), mock(UnitOfWork.class));
+
+        SearchPageDto<VacancySummaryDto> page = service.search("x", Integer.MAX_VALUE, 20);
+
+        verify(repository).search("x", Integer.MAX_VALUE - 21, 21);
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenFindPageByCityThenOnlyVacanciesOfCity() {
+        VacancyCriteria criteria = new VacancyCriteria(2, true, LocalDate.of(2023, 3, 21), null);
+
+        PageDto<VacancySummaryDto> page = vacancyService.findNextPage(null, criteria, 4);
+
+        assertThat(page.getItems()).extracting(VacancySummaryDto::getId).containsExactly(6, 2);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenDeleteThenFileOfDeletedVacancyRemovedAfterCommit() {
+        MemoryVacancyRepository repository = new MemoryVacancyRepository();
+        Vacancy vacancy = repository.save(
+                new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, 42));
+        FileService fileService = mock(FileService.class);
+        UnitOfWork unitOfWork = mock(UnitOfWork.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(unitOfWork).afterCommit(any());
+        VacancyService service = new SimpleVacancyService(repository, fileService, unitOfWork);
+
+        assertThat(service.deleteById(vacancy.getId())).isTrue();
+        assertThat(service.deleteById(vacancy.getId())).isFalse();
+        verify(fileService).deleteById(42);
+    }
+
+    @Test
+    void whenUpdateMissingVacancyWithImageThenNewFileDeleted() {
+        FileService fileService = mockFileService(7);
+        VacancyService service = new SimpleVacancyService(
+                new MemoryVacancyRepository(), fileService, runningUnitOfWork());
+        Vacancy missing = new Vacancy(100, "title", "description", LocalDateTime.now(), true, 1, 0);
+
+        assertThat(service.update(missing, image)).isFalse();
+        verify(fileService).deleteById(7);
+    }
+
+    @Test
+    void whenSaveVacancyFailsThenStoredContentDiscardedAndFileRowNotDeleted() {
+        FileService fileService = mockFileService(7);
+        VacancyRepository repository = mock(VacancyRepository.class);
+        when(repository.save(any())).thenThrow(new IllegalStateException());
+        VacancyService service = new SimpleVacancyService(repository, fileService, runningUnitOfWork());
+        Vacancy vacancy = new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, 0);
+
+        assertThatThrownBy(() -> service.save(vacancy, image))
+                .isInstanceOf(IllegalStateException.class);
+        verify(fileService).discard(stored);
+        verify(fileService).release(stored);
+        verify(fileService, never()).deleteById(7);
+    }
+
+    @Test
+    void whenUpdateWithImageThenFileRowSavedInTransactionOfUpdateAndPreviousDeleted() {
+        MemoryVacancyRepository repository = new MemoryVacancyRepository();
+        Vacancy vacancy = repository.save(
+                new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, 42));
+        FileService fileService = mockFileService(7);
+        UnitOfWork unitOfWork = runningUnitOfWork();
+        List<String> calls = new ArrayList<>();
+        when(fileService.store(image)).thenAnswer(invocation -> {
+            calls.add("store:" + unitOfWork.isInTransaction());
+            return stored;
+        });
+        when(fileService.save(stored)).thenAnswer(invocation -> {
+            calls.add("save:" + unitOfWork.isInTransaction());
+            File file = new File("image.png", "files/image.png");
+            file.setId(7);
+            return file;
+        });
+        VacancyService service = new SimpleVacancyService(repository, fileService, unitOfWork);
+        Vacancy edited = new Vacancy(vacancy.getId(), "title", "edited", LocalDateTime.now(), true, 1, 42);
+
+        assertThat(service.update(edited, image)).isTrue();
+        assertThat(calls).containsExactly("store:false", "save:true");
+        verify(unitOfWork).inTransaction(any());
+        assertThat(repository.findById(vacancy.getId()).get().getFileId()).isEqualTo(7);
+        verify(fileService).deleteById(42);
+        verify(fileService, never()).deleteById(7);
+        verify(fileService, never()).discard(any());
+    }
+
+    private FileService mockFileService(int fileId) {
+        FileService fileService = mock(FileService.class);
+        File file = new File("image.png", "files/image.png");
+        file.setId(fileId);
+        when(fileService.store(any())).thenReturn(stored);
+        when(fileService.save(any(StoredFileDto.class))).thenReturn(file);
+        return fileService;
+    }
+
+    /**
+     * Единица работы, которая просто выполняет переданную работу и действия после коммита
+     * и помнит, идёт ли сейчас транзакция.
+     */
+    private UnitOfWork runningUnitOfWork() {
+        UnitOfWork unitOfWork = mock(UnitOfWork.class);
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            try {
+                return invocation.<Supplier<?>>getArgument(0).get();
+            } finally {
+                inTransaction.set(false);
+            }
+        });
+        when(unitOfWork.isInTransaction()).thenAnswer(invocation -> inTransaction.get());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(unitOfWork).afterCommit(any());
+        return unitOfWork;
+    }
+
+}
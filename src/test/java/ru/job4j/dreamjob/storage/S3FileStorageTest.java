@@ -0,0 +1,200 @@
+package ru.job4j.dreamjob.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+class S3FileStorageTest {
+
+    private static final Duration STALL = Duration.ofSeconds(2);
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private S3FileStorage storage;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.createContext("/dreamjob/stalled", exchange -> {
+            try {
+                Thread.sleep(STALL.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        storage = createStorage(Duration.ofSeconds(30));
+    }
+
+    private S3FileStorage createStorage(Duration requestTimeout) {
+        Clock clock = Clock.fixed(Instant.parse("2023-03-21T10:15:30Z"), ZoneOffset.UTC);
+        return new S3FileStorage("http://localhost:" + server.getAddress().getPort(), "dreamjob",
+                "us-east-1", "access", "secret",
+                new S3FileStorage.Timeouts(Duration.ofSeconds(5), requestTimeout), clock);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Минимальная замена S3: объекты хранятся в памяти по пути запроса.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+        byte[] object = objects.get(path);
+        byte[] requestBody = exchange.getRequestBody().readAllBytes();
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                byte[] content = copySource == null
+                        ? requestBody
+                        : objects.get(URLDecoder.decode(copySource, StandardCharsets.UTF_8));
+                objects.put(path, content);
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "HEAD" -> {
+                if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.getResponseHeaders().set("Last-Modified", "Tue, 21 Mar 2023 10:15:30 GMT");
+                    exchange.sendResponseHeaders(200, -1);
+                }
+            }
+            case "GET" -> {
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null && query.contains("list-type=2")) {
+                    sendList(exchange, query);
+                } else if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, object.length);
+                    exchange.getResponseBody().write(object);
+                }
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+        exchange.close();
+    }
+
+    private void sendList(HttpExchange exchange, String query) throws IOException {
+        String prefix = "/dreamjob/" + query.replaceAll(".*prefix=([^&]*).*", "$1");
+        String keys = objects.keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .map(key -> "<Contents><Key>" + key.substring("/dreamjob/".length()) + "</Key></Contents>")
+                .collect(Collectors.joining());
+        byte[] body = ("<ListBucketResult><IsTruncated>false</IsTruncated>" + keys + "</ListBucketResult>")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    @Test
+    void whenWriteThenObjectStoredInBucketWithSignedRequest() {
+        storage.write("files/ab/cd/my image.png", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3);
+
+        assertThat(objects.get("/dreamjob/files/ab/cd/my image.png")).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(authorizations).allMatch(authorization -> authorization.startsWith(
+                "AWS4-HMAC-SHA256 Credential=access/20230321/us-east-1/s3/aws4_request, SignedHeaders="));
+    }
+
+    @Test
+    void whenReadThenGetContentAndMetadata() throws IOException {
+        storage.write("files/image.png", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3);
+
+        Resource resource = storage.read("files/image.png");
+
+        assertThat(resource.exists()).isTrue();
+        assertThat(resource.contentLength()).isEqualTo(3);
+        assertThat(resource.lastModified()).isEqualTo(Instant.parse("2023-03-21T10:15:30Z").toEpochMilli());
+        assertThat(resource.getContentAsByteArray()).isEqualTo(new byte[] {1, 2, 3});
+    }
+
+    @Test
+    void whenReadMissingKeyThenFileNotFound() {
+        Resource resource = storage.read("files/missing.png");
+
+        assertThat(resource.exists()).isFalse();
+        assertThatThrownBy(resource::getInputStream).isInstanceOf(FileNotFoundException.class);
+        assertThatThrownBy(resource::contentLength).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void whenMoveThenObjectCopiedAndSourceDeleted() {
+        storage.write("files/upload.tmp", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3);
+
+        storage.move("files/upload.tmp", "files/ab/cd/image.png");
+
+        assertThat(storage.exists("files/upload.tmp")).isFalse();
+        assertThat(storage.exists("files/ab/cd/image.png")).isTrue();
+    }
+
+    @Test
+    void whenDeleteThenObjectRemoved() {
+        storage.write("files/image.png", new ByteArrayInputStream(new byte[] {1}), 1);
+
+        storage.delete("files/image.png");
+
+        assertThat(storage.exists("files/image.png")).isFalse();
+    }
+
+    @Test
+    void whenEndpointStallsThenRequestTimesOut() {
+        S3FileStorage impatient = createStorage(Duration.ofMillis(200));
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> impatient.exists("stalled/image.png")).isInstanceOf(RuntimeException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(STALL);
+    }
+
+    @Test
+    void whenWriteWithUnknownSizeThenException() {
+        assertThatThrownBy(() -> storage.write("files/image.png", new ByteArrayInputStream(new byte[0]), -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void whenListThenGetKeysWithPrefix() {
+        storage.write("files/ab/image.png", new ByteArrayInputStream(new byte[] {1}), 1);
+        storage.write("files/cd/photo.png", new ByteArrayInputStream(new byte[] {1}), 1);
+        storage.write("other/file.png", new ByteArrayInputStream(new byte[] {1}), 1);
+
+        try (Stream<String> keys = storage.list("files")) {
+            assertThat(keys).containsExactlyInAnyOrder("files/ab/image.png", "files/cd/photo.png");
+        }
+    }
+
+}